@@ -0,0 +1,24 @@
+// Compares building the concrete ParseTree with building the AST in the same
+// pass, and reports how many fewer nodes the AST has.
+public class AstBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		for (int size : new int[] { 64 * 1024, 1024 * 1024 }) {
+			String source = Benchmark.program(size);
+			TokenBuffer tokens = LexicalAnalyser.tokenise(source);
+			String label = (size / 1024) + "KB ";
+
+			Benchmark.run(label + "parse tree", source.length(),
+					() -> SyntacticAnalyser.parse(TokenStream.of(tokens.asList())));
+			Benchmark.run(label + "AST", source.length(), () -> AstBuilder.build(TokenStream.of(tokens.asList())));
+
+			AstBuilder builder = new AstBuilder();
+			SyntacticAnalyser.parse(TokenStream.of(tokens.asList()), builder);
+			int concrete = builder.getConcreteNodeCount();
+			int ast = builder.getProgram().size();
+			System.out.printf("%sconcrete tree %d nodes, AST %d nodes (%.1fx fewer)%n", label, concrete, ast,
+					(double) concrete / ast);
+		}
+	}
+
+}
@@ -0,0 +1,191 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// A ParseListener that builds an AstNode.Program in the same pass as the parse.
+// Meaningful terminals are pushed as items (names, literals, the declared type
+// and operator tokens), punctuation and epsilon are dropped, and when a
+// non-terminal exits the items it produced are reduced to a typed node. Labels
+// that only pass a value through (stat, factor, boolop, ...) leave their items
+// as they are, which is what collapses the unit chains.
+public class AstBuilder implements ParseListener {
+
+	private final List<Object> items = new ArrayList<>();
+	private int[] starts = new int[64];
+	private TreeNode.Label[] labels = new TreeNode.Label[64];
+	private int depth;
+	private int concreteNodes;
+
+	public static AstNode.Program build(TokenStream tokens) throws SyntaxException, LexicalException {
+		AstBuilder builder = new AstBuilder();
+		SyntacticAnalyser.parse(tokens, builder);
+		return builder.getProgram();
+	}
+
+	public AstNode.Program getProgram() {
+		return (AstNode.Program) items.get(0);
+	}
+
+	// Nodes the concrete ParseTree for the same input would have had
+	public int getConcreteNodeCount() {
+		return this.concreteNodes;
+	}
+
+	@Override
+	public void enterNonTerminal(TreeNode.Label label) {
+		concreteNodes++;
+		if (depth == starts.length) {
+			starts = Arrays.copyOf(starts, depth * 2);
+			labels = Arrays.copyOf(labels, depth * 2);
+		}
+		starts[depth] = items.size();
+		labels[depth++] = label;
+	}
+
+	@Override
+	public void terminal(Token token) {
+		concreteNodes++;
+		switch (token.getType()) {
+		case ID:
+			items.add(new AstNode.Name(token));
+			break;
+		case NUM:
+		case TRUE:
+		case FALSE:
+		case CHARLIT:
+		case STRINGLIT:
+			items.add(new AstNode.Literal(token));
+			break;
+		case TYPE:
+		case PLUS:
+		case MINUS:
+		case TIMES:
+		case DIVIDE:
+		case MOD:
+		case EQUAL:
+		case NEQUAL:
+		case LT:
+		case LE:
+		case GT:
+		case GE:
+		case AND:
+		case OR:
+			items.add(token);
+			break;
+		default:
+			break;
+		}
+	}
+
+	@Override
+	public void exitNonTerminal(TreeNode.Label label) {
+		int start = starts[--depth];
+		switch (label) {
+		case prog:
+			replace(start, new AstNode.Program(((AstNode.Name) items.get(start)).getName(),
+					(AstNode.Block) items.get(start + 1)));
+			break;
+		case los:
+			// Only the outermost los of a chain closes the block
+			if (depth == 0 || labels[depth - 1] != TreeNode.Label.los)
+				replace(start, new AstNode.Block(new ArrayList<>(nodes(start, items.size()))));
+			break;
+		case whilestat:
+			fold(start);
+			replace(start, new AstNode.While(node(start), (AstNode.Block) items.get(start + 1)));
+			break;
+		case forstat: {
+			int at = start;
+			AstNode init = null;
+			if (items.get(at) instanceof AstNode.Assign || items.get(at) instanceof AstNode.Declare)
+				init = node(at++);
+			fold(at);
+			AstNode condition = node(at++);
+			AstNode update = items.get(at) instanceof AstNode.Block ? null : node(at++);
+			replace(start, new AstNode.For(init, condition, update, (AstNode.Block) items.get(at)));
+			break;
+		}
+		case ifstat: {
+			fold(start);
+			AstNode.Block otherwise = start + 2 < items.size() ? (AstNode.Block) items.get(start + 2) : null;
+			replace(start, new AstNode.If(node(start), (AstNode.Block) items.get(start + 1), otherwise));
+			break;
+		}
+		case possif:
+			if (start < items.size())
+				fold(start);
+			break;
+		case elseifstat:
+			if (start < items.size())
+				replace(start, otherwise(start));
+			break;
+		case assign:
+			replace(start, new AstNode.Assign((AstNode.Name) items.get(start), node(start + 1)));
+			break;
+		case decl: {
+			AstNode value = start + 2 < items.size() ? node(start + 2) : null;
+			replace(start, new AstNode.Declare(((Token) items.get(start)).getValue().get(),
+					(AstNode.Name) items.get(start + 1), value));
+			break;
+		}
+		case print:
+			replace(start, new AstNode.Print(node(start)));
+			break;
+		case expr:
+		case printexpr:
+		case relexpr:
+		case arithexpr:
+		case term:
+			fold(start);
+			break;
+		default:
+			break;
+		}
+	}
+
+	// The else part of an if: an optional else-if condition, its block and the
+	// rest of the chain, already reduced to a block
+	private AstNode.Block otherwise(int start) {
+		int at = start;
+		AstNode condition = items.get(at) instanceof AstNode.Block ? null : node(at++);
+		AstNode.Block block = (AstNode.Block) items.get(at++);
+		AstNode.Block rest = at < items.size() ? (AstNode.Block) items.get(at) : null;
+		if (condition != null)
+			return new AstNode.Block(new ArrayList<>(Arrays.asList(new AstNode.If(condition, block, rest))));
+		if (rest == null)
+			return block;
+		List<AstNode> statements = new ArrayList<>(block.getStatements());
+		statements.addAll(rest.getStatements());
+		return new AstNode.Block(statements);
+	}
+
+	// Folds "operand (operator operand)*" starting at the index into one
+	// left-associative expression, removing the consumed items in one go
+	private void fold(int at) {
+		int end = at + 1;
+		while (end + 1 < items.size() && items.get(end) instanceof Token)
+			end += 2;
+		if (end == at + 1)
+			return;
+		AstNode left = node(at);
+		for (int i = at + 1; i < end; i += 2)
+			left = new AstNode.BinaryOp(((Token) items.get(i)).getType(), left, node(i + 1));
+		items.set(at, left);
+		items.subList(at + 1, end).clear();
+	}
+
+	private AstNode node(int index) {
+		return (AstNode) items.get(index);
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<AstNode> nodes(int from, int to) {
+		return (List<AstNode>) (List<?>) items.subList(from, to);
+	}
+
+	private void replace(int start, AstNode node) {
+		items.subList(start, items.size()).clear();
+		items.add(node);
+	}
+
+}
@@ -0,0 +1,394 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+// Abstract syntax tree built by AstBuilder. Unlike the concrete tree it has no
+// epsilon or punctuation nodes, and chains such as expr -> relexpr -> ... ->
+// factor collapse into the single expression they derive. toString gives a
+// compact bracketed form, e.g. (Assign x (PLUS x 1)).
+public abstract class AstNode {
+
+	public abstract List<AstNode> getChildren();
+
+	// Number of nodes in this subtree
+	public int size() {
+		int count = 0;
+		Deque<AstNode> pending = new ArrayDeque<>();
+		pending.push(this);
+		while (!pending.isEmpty()) {
+			AstNode node = pending.pop();
+			count++;
+			for (AstNode child : node.getChildren())
+				pending.push(child);
+		}
+		return count;
+	}
+
+	private static List<AstNode> present(AstNode... nodes) {
+		List<AstNode> children = new ArrayList<>(nodes.length);
+		for (AstNode node : nodes)
+			if (node != null)
+				children.add(node);
+		return children;
+	}
+
+	private static String show(AstNode node) {
+		return node == null ? "-" : node.toString();
+	}
+
+	public static final class Program extends AstNode {
+
+		private final String name;
+		private final Block body;
+
+		Program(String name, Block body) {
+			this.name = name;
+			this.body = body;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public Block getBody() {
+			return this.body;
+		}
+
+		@Override
+		public List<AstNode> getChildren() {
+			return Collections.singletonList(body);
+		}
+
+		@Override
+		public String toString() {
+			return "(Program " + name + " " + body + ")";
+		}
+
+	}
+
+	public static final class Block extends AstNode {
+
+		private final List<AstNode> statements;
+
+		Block(List<AstNode> statements) {
+			this.statements = Collections.unmodifiableList(statements);
+		}
+
+		public List<AstNode> getStatements() {
+			return this.statements;
+		}
+
+		@Override
+		public List<AstNode> getChildren() {
+			return statements;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder s = new StringBuilder("(Block");
+			for (AstNode statement : statements)
+				s.append(' ').append(statement);
+			return s.append(')').toString();
+		}
+
+	}
+
+	public static final class Assign extends AstNode {
+
+		private final Name target;
+		private final AstNode value;
+
+		Assign(Name target, AstNode value) {
+			this.target = target;
+			this.value = value;
+		}
+
+		public Name getTarget() {
+			return this.target;
+		}
+
+		public AstNode getValue() {
+			return this.value;
+		}
+
+		@Override
+		public List<AstNode> getChildren() {
+			return Arrays.asList(target, value);
+		}
+
+		@Override
+		public String toString() {
+			return "(Assign " + target + " " + value + ")";
+		}
+
+	}
+
+	public static final class Declare extends AstNode {
+
+		private final String type;
+		private final Name name;
+		private final AstNode value;
+
+		Declare(String type, Name name, AstNode value) {
+			this.type = type;
+			this.name = name;
+			this.value = value;
+		}
+
+		public String getType() {
+			return this.type;
+		}
+
+		public Name getName() {
+			return this.name;
+		}
+
+		// The initial value, or null if the declaration has none
+		public AstNode getValue() {
+			return this.value;
+		}
+
+		@Override
+		public List<AstNode> getChildren() {
+			return present(name, value);
+		}
+
+		@Override
+		public String toString() {
+			return "(Declare " + type + " " + name + (value == null ? "" : " " + value) + ")";
+		}
+
+	}
+
+	public static final class While extends AstNode {
+
+		private final AstNode condition;
+		private final Block body;
+
+		While(AstNode condition, Block body) {
+			this.condition = condition;
+			this.body = body;
+		}
+
+		public AstNode getCondition() {
+			return this.condition;
+		}
+
+		public Block getBody() {
+			return this.body;
+		}
+
+		@Override
+		public List<AstNode> getChildren() {
+			return Arrays.asList(condition, body);
+		}
+
+		@Override
+		public String toString() {
+			return "(While " + condition + " " + body + ")";
+		}
+
+	}
+
+	public static final class For extends AstNode {
+
+		private final AstNode init;
+		private final AstNode condition;
+		private final AstNode update;
+		private final Block body;
+
+		For(AstNode init, AstNode condition, AstNode update, Block body) {
+			this.init = init;
+			this.condition = condition;
+			this.update = update;
+			this.body = body;
+		}
+
+		// The Assign or Declare before the first semicolon, or null
+		public AstNode getInit() {
+			return this.init;
+		}
+
+		public AstNode getCondition() {
+			return this.condition;
+		}
+
+		// The expression after the second semicolon, or null
+		public AstNode getUpdate() {
+			return this.update;
+		}
+
+		public Block getBody() {
+			return this.body;
+		}
+
+		@Override
+		public List<AstNode> getChildren() {
+			return present(init, condition, update, body);
+		}
+
+		@Override
+		public String toString() {
+			return "(For " + show(init) + " " + condition + " " + show(update) + " " + body + ")";
+		}
+
+	}
+
+	public static final class If extends AstNode {
+
+		private final AstNode condition;
+		private final Block then;
+		private final Block otherwise;
+
+		If(AstNode condition, Block then, Block otherwise) {
+			this.condition = condition;
+			this.then = then;
+			this.otherwise = otherwise;
+		}
+
+		public AstNode getCondition() {
+			return this.condition;
+		}
+
+		public Block getThen() {
+			return this.then;
+		}
+
+		// The else branch, or null; an else-if is an If alone in this block
+		public Block getOtherwise() {
+			return this.otherwise;
+		}
+
+		@Override
+		public List<AstNode> getChildren() {
+			return present(condition, then, otherwise);
+		}
+
+		@Override
+		public String toString() {
+			return "(If " + condition + " " + then + (otherwise == null ? "" : " " + otherwise) + ")";
+		}
+
+	}
+
+	public static final class Print extends AstNode {
+
+		private final AstNode value;
+
+		Print(AstNode value) {
+			this.value = value;
+		}
+
+		public AstNode getValue() {
+			return this.value;
+		}
+
+		@Override
+		public List<AstNode> getChildren() {
+			return Collections.singletonList(value);
+		}
+
+		@Override
+		public String toString() {
+			return "(Print " + value + ")";
+		}
+
+	}
+
+	public static final class BinaryOp extends AstNode {
+
+		private final Token.TokenType operator;
+		private final AstNode left;
+		private final AstNode right;
+
+		BinaryOp(Token.TokenType operator, AstNode left, AstNode right) {
+			this.operator = operator;
+			this.left = left;
+			this.right = right;
+		}
+
+		public Token.TokenType getOperator() {
+			return this.operator;
+		}
+
+		public AstNode getLeft() {
+			return this.left;
+		}
+
+		public AstNode getRight() {
+			return this.right;
+		}
+
+		@Override
+		public List<AstNode> getChildren() {
+			return Arrays.asList(left, right);
+		}
+
+		@Override
+		public String toString() {
+			return "(" + operator + " " + left + " " + right + ")";
+		}
+
+	}
+
+	// NUM, TRUE, FALSE, CHARLIT or STRINGLIT
+	public static final class Literal extends AstNode {
+
+		private final Token token;
+
+		Literal(Token token) {
+			this.token = token;
+		}
+
+		public Token getToken() {
+			return this.token;
+		}
+
+		@Override
+		public List<AstNode> getChildren() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public String toString() {
+			switch (token.getType()) {
+			case CHARLIT: return "'" + token.getValue().get() + "'";
+			case STRINGLIT: return "\"" + token.getValue().get() + "\"";
+			default: return token.getValue().get();
+			}
+		}
+
+	}
+
+	public static final class Name extends AstNode {
+
+		private final Token token;
+
+		Name(Token token) {
+			this.token = token;
+		}
+
+		public Token getToken() {
+			return this.token;
+		}
+
+		public String getName() {
+			return token.getValue().get();
+		}
+
+		@Override
+		public List<AstNode> getChildren() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public String toString() {
+			return getName();
+		}
+
+	}
+
+}
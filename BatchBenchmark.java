@@ -0,0 +1,35 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Parses a batch of small programs in a sequential loop and through
+// BatchParser at increasing pool sizes.
+public class BatchBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		List<String> sources = new ArrayList<>();
+		long chars = 0;
+		for (int i = 0; i < 1000; i++) {
+			String source = Benchmark.program(2 * 1024 + 37 * (i % 64));
+			sources.add(source);
+			chars += source.length();
+		}
+		System.out.println(Runtime.getRuntime().availableProcessors() + " processors");
+
+		Benchmark.run("1000 files sequential", chars, () -> {
+			int nodes = 0;
+			for (String source : sources)
+				nodes += System.identityHashCode(SyntacticAnalyser.parse(LexicalAnalyser.stream(source)));
+			return nodes;
+		});
+		for (int threads = 1; threads <= Runtime.getRuntime().availableProcessors() * 2; threads *= 2) {
+			try (BatchParser batch = new BatchParser(threads)) {
+				Benchmark.run("1000 files batch, " + threads + " threads", chars, () -> {
+					int[] nodes = new int[1];
+					batch.parseSources(sources, result -> nodes[0] += System.identityHashCode(result.getTree()));
+					return nodes[0];
+				});
+			}
+		}
+	}
+
+}
@@ -0,0 +1,164 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Parses many independent sources on a pool of threads. Each source is lexed in
+// tolerant mode and parsed with error recovery, so every result carries a tree
+// and all of its diagnostics rather than just the first failure.
+//
+// At most maxInFlight sources are submitted but not yet handed to the sink. The
+// sink runs on the calling thread, and the next input is only taken once a slot
+// is free, so a slow consumer holds back the whole batch instead of letting
+// finished trees pile up. Results arrive in completion order; Result.getIndex()
+// gives each one's position in the input.
+//
+// The parse itself shares only immutable state between threads: the table and
+// FOLLOW sets in SyntacticAnalyser are final and never written after class
+// initialisation, and the lexeme pool tolerates races by design.
+public class BatchParser implements AutoCloseable {
+
+	// Per source; a file with more errors than this is not worth reporting in full
+	private static final int MAX_DIAGNOSTICS = 100;
+
+	private final Executor executor;
+	private final int maxInFlight;
+	private final ForkJoinPool ownedPool;
+
+	// Runs on a fork-join pool of the given size, which close() shuts down
+	public BatchParser(int parallelism) {
+		this(new ForkJoinPool(parallelism), 4 * parallelism, true);
+	}
+
+	// Runs on the caller's executor, e.g. one thread per task, which close()
+	// leaves alone
+	public BatchParser(Executor executor, int maxInFlight) {
+		this(executor, maxInFlight, false);
+	}
+
+	private BatchParser(Executor executor, int maxInFlight, boolean owned) {
+		if (maxInFlight < 1)
+			throw new IllegalArgumentException("maxInFlight must be at least 1: " + maxInFlight);
+		this.executor = executor;
+		this.maxInFlight = maxInFlight;
+		this.ownedPool = owned ? (ForkJoinPool) executor : null;
+	}
+
+	// Files are memory-mapped, so only the sources in flight are resident
+	public void parseFiles(Iterable<Path> files, Consumer<Result> sink) throws InterruptedException {
+		run(files, Path::toString, MappedSource::open, sink);
+	}
+
+	public void parseSources(Iterable<? extends CharSequence> sources, Consumer<Result> sink) throws InterruptedException {
+		run(sources, source -> null, source -> source, sink);
+	}
+
+	@Override
+	public void close() {
+		if (ownedPool != null)
+			ownedPool.shutdown();
+	}
+
+	private interface Loader<T> {
+		CharSequence load(T input) throws IOException;
+	}
+
+	private <T> void run(Iterable<T> inputs, Function<T, String> namer, Loader<T> loader, Consumer<Result> sink)
+			throws InterruptedException {
+		CompletionService<Result> completed = new ExecutorCompletionService<>(executor);
+		int inFlight = 0;
+		int index = 0;
+		for (T input : inputs) {
+			if (inFlight == maxInFlight) {
+				sink.accept(take(completed));
+				inFlight--;
+			}
+			int id = index++;
+			completed.submit(() -> parse(id, namer.apply(input), loader, input));
+			inFlight++;
+		}
+		for (; inFlight > 0; inFlight--)
+			sink.accept(take(completed));
+	}
+
+	private static Result take(CompletionService<Result> completed) throws InterruptedException {
+		try {
+			return completed.take().get();
+		} catch (ExecutionException e) {
+			// parse reports every checked failure in its Result, so this is a bug
+			throw new IllegalStateException("Batch parse failed", e.getCause());
+		}
+	}
+
+	private static <T> Result parse(int index, String name, Loader<T> loader, T input) {
+		List<Exception> diagnostics = new ArrayList<>();
+		CharSequence text;
+		try {
+			text = loader.load(input);
+		} catch (IOException e) {
+			diagnostics.add(e);
+			return new Result(index, name, null, diagnostics);
+		}
+		List<LexicalException> lexical = new ArrayList<>();
+		ParseResult result;
+		try {
+			result = SyntacticAnalyser.parseRecovering(LexicalAnalyser.streamTolerant(text, lexical), MAX_DIAGNOSTICS);
+		} catch (LexicalException e) {
+			// A tolerant stream reports lexical errors in the list instead
+			throw new IllegalStateException(e);
+		}
+		diagnostics.addAll(lexical);
+		diagnostics.addAll(result.getErrors());
+		return new Result(index, name, result.getTree(), diagnostics);
+	}
+
+	public static final class Result {
+
+		private final int index;
+		private final String name;
+		private final ParseTree tree;
+		private final List<Exception> diagnostics;
+
+		private Result(int index, String name, ParseTree tree, List<Exception> diagnostics) {
+			this.index = index;
+			this.name = name;
+			this.tree = tree;
+			this.diagnostics = Collections.unmodifiableList(diagnostics);
+		}
+
+		// Position of the source in the batch's input
+		public int getIndex() {
+			return this.index;
+		}
+
+		// The file's path, or null for a source passed as text
+		public String getName() {
+			return this.name;
+		}
+
+		// The recovered tree, or null if the file could not be read
+		public ParseTree getTree() {
+			return this.tree;
+		}
+
+		// The IOException if the file could not be read, otherwise the lexical
+		// errors followed by the syntax errors
+		public List<Exception> getDiagnostics() {
+			return this.diagnostics;
+		}
+
+		public boolean isValid() {
+			return diagnostics.isEmpty();
+		}
+
+	}
+
+}
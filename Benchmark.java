@@ -0,0 +1,133 @@
+import java.lang.management.ManagementFactory;
+
+// Small measurement harness shared by the *Benchmark mains. Each case is warmed
+// up, then run repeatedly for a fixed time; the report gives the mean time per
+// operation, throughput over the input and the bytes allocated per operation.
+final class Benchmark {
+
+	interface Operation {
+		Object run() throws Exception;
+	}
+
+	private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+
+	private static final long WARMUP_NANOS = 1_000_000_000L;
+	private static final long MEASURE_NANOS = 2_000_000_000L;
+
+	// Results are folded in here so the JIT cannot discard the work
+	static volatile int sink;
+
+	private Benchmark() {
+	}
+
+	public static void run(String name, long inputChars, Operation operation) throws Exception {
+		loop(operation, WARMUP_NANOS);
+
+		long threadId = Thread.currentThread().getId();
+		long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		long ops = loop(operation, MEASURE_NANOS);
+		long elapsed = System.nanoTime() - start;
+		long allocated = THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+		double nanosPerOp = (double) elapsed / ops;
+		double mbPerSecond = inputChars / (nanosPerOp / 1e9) / (1024 * 1024);
+		double allocationRate = allocated / (elapsed / 1e9) / (1024 * 1024);
+		System.out.printf("%-44s %12.3f us/op %10.1f MB/s %14d B/op %10.1f MB/s alloc%n", name, nanosPerOp / 1e3,
+				mbPerSecond, allocated / ops, allocationRate);
+	}
+
+	private static long loop(Operation operation, long nanos) throws Exception {
+		long ops = 0;
+		long end = System.nanoTime() + nanos;
+		do {
+			sink += System.identityHashCode(operation.run());
+			ops++;
+		} while (System.nanoTime() < end);
+		return ops;
+	}
+
+	// A flat program of roughly the given size in characters, cycling through
+	// declarations, assignments, loops, conditionals and prints
+	public static String program(int chars) {
+		StringBuilder source = new StringBuilder(chars + 256);
+		source.append("public class Bench {\n\tpublic static void main(String[] args) {\n");
+		for (int i = 0; source.length() < chars; i++) {
+			String v = "v" + (i % 64);
+			switch (i % 5) {
+			case 0:
+				source.append("\t\tint ").append(v).append(" = ").append(i).append(";\n");
+				break;
+			case 1:
+				source.append("\t\t").append(v).append(" = ").append(v).append(" + 1 * (2 - count) % 7;\n");
+				break;
+			case 2:
+				source.append("\t\twhile (").append(v).append(" < 10 && done == false) { ").append(v)
+						.append(" = ").append(v).append(" + 1; }\n");
+				break;
+			case 3:
+				source.append("\t\tif (").append(v).append(" == 3) { System.out.println(\"hit\"); } else { ; }\n");
+				break;
+			default:
+				source.append("\t\tfor (int i = 0; i <= ").append(v).append("; i + 1) { char c = 'x'; }\n");
+				break;
+			}
+		}
+		return source.append("\t}\n}\n").toString();
+	}
+
+	// Blocks nested up to the given depth and closed again, repeated until the
+	// program reaches roughly the given size
+	public static String nested(int chars, int depth) {
+		StringBuilder source = new StringBuilder(chars + 256);
+		source.append("public class Bench {\n\tpublic static void main(String[] args) {\n");
+		while (source.length() < chars) {
+			int level = 0;
+			for (; level < depth && source.length() < chars; level++) {
+				switch (level % 3) {
+				case 0:
+					source.append("while (v").append(level % 64).append(" < 10) { ");
+					break;
+				case 1:
+					source.append("if (done == false) { v = v + 1; ");
+					break;
+				default:
+					source.append("for (int i = 0; i < 3; i + 1) { ");
+					break;
+				}
+			}
+			// Close whatever is open, however far the size let the nesting get
+			for (; level > 0; level--)
+				source.append("} ");
+			source.append('\n');
+		}
+		return source.append("\t}\n}\n").toString();
+	}
+
+	// Statements that are almost all expression: long arithmetic and boolean
+	// chains with parentheses
+	public static String expressions(int chars) {
+		StringBuilder source = new StringBuilder(chars + 256);
+		source.append("public class Bench {\n\tpublic static void main(String[] args) {\n");
+		for (int i = 0; source.length() < chars; i++) {
+			String v = "v" + (i % 64);
+			if (i % 4 == 3) {
+				source.append("\t\twhile (").append(v).append(" < 10 && a != b || c >= (d + 1) && e == f) { ; }\n");
+				continue;
+			}
+			source.append("\t\t").append(v).append(" = ");
+			for (int term = 0; term < 24; term++) {
+				if (term > 0)
+					source.append(term % 5 == 0 ? " - " : term % 3 == 0 ? " * " : " + ");
+				if (term % 7 == 0)
+					source.append("(x").append(term).append(" % ").append(term + 2).append(")");
+				else
+					source.append(term % 2 == 0 ? "y" + term : String.valueOf(term * 31));
+			}
+			source.append(";\n");
+		}
+		return source.append("\t}\n}\n").toString();
+	}
+
+}
@@ -0,0 +1,85 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Runs lexing, parsing, toString and end-to-end lex+parse over each input shape
+// at sizes from 1KB up to the given maximum (default 1MB):
+//
+//   java BenchmarkSuite [max size, e.g. 100MB] [name filter]
+//
+// Each line reports time per operation, throughput over the source and the
+// bytes allocated per operation and per second. The parse tree of a flat 100MB
+// program takes tens of GB of heap, so the largest sizes need a matching -Xmx.
+// toString output grows with the nesting depth of each node, and the statement
+// list nests one level per statement, so it is only run up to 64KB.
+public class BenchmarkSuite {
+
+	private static final int KB = 1024;
+	private static final int MB = 1024 * 1024;
+	private static final int[] SIZES = { KB, 64 * KB, MB, 16 * MB, 100 * MB };
+	private static final int MAX_RENDER = 64 * KB;
+
+	interface Shape {
+		String generate(int chars) throws IOException;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int max = args.length > 0 ? size(args[0]) : MB;
+		String filter = args.length > 1 ? args[1] : "";
+
+		List<String> names = new ArrayList<>();
+		List<Shape> shapes = new ArrayList<>();
+		names.add("flat");
+		shapes.add(Benchmark::program);
+		names.add("nested");
+		shapes.add(chars -> Benchmark.nested(chars, 1000));
+		names.add("expressions");
+		shapes.add(Benchmark::expressions);
+		names.add("generated");
+		shapes.add(chars -> {
+			ProgramGenerator generator = new ProgramGenerator(chars);
+			generator.setTargetSize(chars);
+			StringBuilder source = new StringBuilder(chars + 1024);
+			generator.generate(source);
+			return source.toString();
+		});
+
+		for (int size : SIZES) {
+			if (size > max)
+				break;
+			for (int i = 0; i < shapes.size(); i++) {
+				String source = shapes.get(i).generate(size);
+				String label = label(size) + " " + names.get(i) + " ";
+				List<Token> tokens = LexicalAnalyser.tokenise(source).asList();
+
+				run(filter, label + "lex", source, () -> LexicalAnalyser.tokenise(source));
+				run(filter, label + "parse", source, () -> SyntacticAnalyser.parse(tokens));
+				if (size <= MAX_RENDER) {
+					ParseTree tree = SyntacticAnalyser.parse(tokens);
+					run(filter, label + "toString", source, tree::toString);
+				}
+				run(filter, label + "lex+parse", source, () -> SyntacticAnalyser.parse(LexicalAnalyser.stream(source)));
+			}
+		}
+	}
+
+	private static void run(String filter, String name, String source, Benchmark.Operation operation) throws Exception {
+		if (name.contains(filter))
+			Benchmark.run(name, source.length(), operation);
+	}
+
+	private static String label(int size) {
+		return size >= MB ? (size / MB) + "MB" : (size / KB) + "KB";
+	}
+
+	// "64KB", "16MB" or a plain number of characters
+	private static int size(String text) {
+		String upper = text.toUpperCase();
+		if (upper.endsWith("MB"))
+			return Integer.parseInt(upper.substring(0, upper.length() - 2)) * MB;
+		if (upper.endsWith("KB"))
+			return Integer.parseInt(upper.substring(0, upper.length() - 2)) * KB;
+		return Integer.parseInt(upper);
+	}
+
+}
@@ -0,0 +1,50 @@
+// Parses a working set of 64 distinct 16KB sources in rotation, uncached and
+// through a ParseCache large enough to hold them all, then through one that
+// holds only half, where LRU over a cyclic scan misses every time and the
+// cost is the hashing and bookkeeping on top of the parse.
+public class CacheBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		String[] sources = new String[64];
+		for (int i = 0; i < sources.length; i++) {
+			ProgramGenerator generator = new ProgramGenerator(i);
+			generator.setTargetSize(16 * 1024);
+			StringBuilder source = new StringBuilder();
+			generator.generate(source);
+			sources[i] = source.toString();
+		}
+		long chars = 0;
+		for (String source : sources)
+			chars += source.length();
+
+		Benchmark.run("64 x 16KB uncached", chars, () -> {
+			int sum = 0;
+			for (String source : sources)
+				sum += SyntacticAnalyser.parseCompact(LexicalAnalyser.tokenise(source)).hashCode();
+			return sum;
+		});
+		ParseCache cache = new ParseCache(256L << 20, false);
+		Benchmark.run("64 x 16KB cached", chars, () -> {
+			int sum = 0;
+			for (String source : sources)
+				sum += cache.parse(source).hashCode();
+			return sum;
+		});
+		System.out.println(cache);
+		ParseCache half = new ParseCache(cache.getWeight() / 2, false);
+		Benchmark.run("64 x 16KB cache thrashing", chars, () -> {
+			int sum = 0;
+			for (String source : sources)
+				sum += half.parse(source).hashCode();
+			return sum;
+		});
+		System.out.println(half);
+		Benchmark.run("64 x 16KB hash only", chars, () -> {
+			int sum = 0;
+			for (String source : sources)
+				sum += SourceHash.of(source).hashCode();
+			return sum;
+		});
+	}
+
+}
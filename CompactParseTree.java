@@ -0,0 +1,261 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Optional;
+
+// A parse tree stored in an arena of parallel primitive arrays instead of one
+// TreeNode object per node. Nodes are numbered in creation order from the root
+// (0), so a parent always has a smaller id than its children. Terminals refer
+// to their token by index into the TokenBuffer the tree was parsed from. The
+// TreeNode graph is only built if getRoot() is called.
+public class CompactParseTree extends ParseTree {
+
+	private static final TreeNode.Label[] LABELS = TreeNode.Label.values();
+
+	private final TokenBuffer tokens;
+	private byte[] labels;
+	private int[] tokenIndexes;
+	private int[] firstChildren;
+	private int[] nextSiblings;
+	private int[] parents;
+	private int size;
+	private boolean shared;
+	// The TreeNode graph, built on first use or set with setRoot. From then on
+	// it is the tree and the arena is not read for it again.
+	private TreeNode root;
+	// Written after root, so a thread that sees it set sees the complete graph
+	private volatile boolean built;
+
+	CompactParseTree(TokenBuffer tokens) {
+		this.tokens = tokens;
+		// Parse trees of typical programs hold just under four nodes per token
+		int capacity = Math.max(16, tokens.size() * 4);
+		this.labels = new byte[capacity];
+		this.tokenIndexes = new int[capacity];
+		this.firstChildren = new int[capacity];
+		this.nextSiblings = new int[capacity];
+		this.parents = new int[capacity];
+		this.size = 0;
+	}
+
+	// Appends a node after the given previous sibling (-1 for the first child)
+	// and returns its id
+	int add(TreeNode.Label label, int parent, int previousSibling) {
+		if (size == labels.length)
+			resize(size + (size >> 1) + 1);
+		labels[size] = (byte) label.ordinal();
+		tokenIndexes[size] = -1;
+		firstChildren[size] = -1;
+		nextSiblings[size] = -1;
+		parents[size] = parent;
+		if (previousSibling >= 0)
+			nextSiblings[previousSibling] = size;
+		else if (parent >= 0)
+			firstChildren[parent] = size;
+		return size++;
+	}
+
+	void setToken(int node, int tokenIndex) {
+		tokenIndexes[node] = tokenIndex;
+	}
+
+	// Drops the spare capacity once the tree is complete
+	void trim() {
+		resize(size);
+	}
+
+	// Marks the tree as shared between callers, e.g. by ParseCache. The arena is
+	// never written again, so its read methods are safe from any thread, and the
+	// TreeNode graph is built once like any other but read-only. Its tokens view
+	// a text that is shared too, so no edit can move them.
+	synchronized void share() {
+		shared = true;
+		tokens.getSource().share();
+		if (root != null)
+			root.freeze();
+	}
+
+	// Rough heap held by the tree and its tokens, for caches that weigh their entries
+	long retainedBytes() {
+		return 40 + 5 * 16 + 17L * labels.length + tokens.retainedBytes();
+	}
+
+	private void resize(int capacity) {
+		labels = Arrays.copyOf(labels, capacity);
+		tokenIndexes = Arrays.copyOf(tokenIndexes, capacity);
+		firstChildren = Arrays.copyOf(firstChildren, capacity);
+		nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+		parents = Arrays.copyOf(parents, capacity);
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public TokenBuffer getTokens() {
+		return this.tokens;
+	}
+
+	public TreeNode.Label label(int node) {
+		return LABELS[labels[node]];
+	}
+
+	// Index into getTokens(), or -1 for a node without a token
+	public int tokenIndex(int node) {
+		return tokenIndexes[node];
+	}
+
+	public Optional<Token> token(int node) {
+		int index = tokenIndexes[node];
+		return index < 0 ? Optional.empty() : Optional.of(tokens.get(index));
+	}
+
+	// Child, sibling and parent links; -1 where there is none
+	public int firstChild(int node) {
+		return firstChildren[node];
+	}
+
+	public int nextSibling(int node) {
+		return nextSiblings[node];
+	}
+
+	public int parent(int node) {
+		return parents[node];
+	}
+
+	public Cursor cursor() {
+		return new Cursor(0);
+	}
+
+	// Renders straight from the arena in the same format as ParseTree until a
+	// TreeNode graph exists, which may have been changed since, and through it
+	// after. The walk needs no stack: after a leaf it climbs parent links to the
+	// next sibling.
+	@Override
+	public void render(Appendable out) throws IOException {
+		if (size == 0 || built) {
+			super.render(out);
+			return;
+		}
+		StringBuilder bars = new StringBuilder();
+		int node = 0;
+		int depth = 0;
+		while (node >= 0) {
+			if (depth > 0) {
+				while (bars.length() < 2 * (depth - 1))
+					bars.append("| ");
+				out.append(bars, 0, 2 * (depth - 1)).append("|-");
+			}
+			// Matches TreeNode.toString, including how Optional prints the token
+			out.append('[').append(LABELS[labels[node]].name()).append(", ");
+			if (tokenIndexes[node] < 0)
+				out.append("Optional.empty");
+			else
+				out.append("Optional[").append(tokens.get(tokenIndexes[node]).toString()).append(']');
+			out.append("]\n");
+
+			if (firstChildren[node] >= 0) {
+				node = firstChildren[node];
+				depth++;
+				continue;
+			}
+			while (node >= 0 && nextSiblings[node] < 0) {
+				node = parents[node];
+				depth--;
+			}
+			if (node >= 0)
+				node = nextSiblings[node];
+		}
+	}
+
+	// Builds the equivalent TreeNode graph the first time it is asked for
+	@Override
+	public TreeNode getRoot() {
+		if (!built) {
+			synchronized (this) {
+				if (!built) {
+					root = size > 0 ? toTreeNodes() : null;
+					if (shared && root != null)
+						root.freeze();
+					built = true;
+				}
+			}
+		}
+		return root;
+	}
+
+	@Override
+	public synchronized void setRoot(TreeNode root) {
+		if (shared)
+			throw new UnsupportedOperationException("A shared tree cannot be modified");
+		this.root = root;
+		built = true;
+	}
+
+	private TreeNode toTreeNodes() {
+		TreeNode[] nodes = new TreeNode[size];
+		nodes[0] = treeNode(0, null);
+		// Parents precede their children, so each node exists before it is linked
+		for (int node = 0; node < size; node++) {
+			for (int child = firstChildren[node]; child >= 0; child = nextSiblings[child]) {
+				nodes[child] = treeNode(child, nodes[node]);
+				nodes[node].addChild(nodes[child]);
+			}
+		}
+		return nodes[0];
+	}
+
+	private TreeNode treeNode(int node, TreeNode parent) {
+		int index = tokenIndexes[node];
+		if (index < 0)
+			return new TreeNode(LABELS[labels[node]], parent);
+		return new TreeNode(LABELS[labels[node]], tokens.get(index), parent);
+	}
+
+	// A movable position in the tree. Moves return false and leave the cursor
+	// where it was when there is no such node.
+	public class Cursor {
+
+		private int node;
+
+		private Cursor(int node) {
+			this.node = node;
+		}
+
+		public int getNode() {
+			return this.node;
+		}
+
+		public TreeNode.Label getLabel() {
+			return label(node);
+		}
+
+		public Optional<Token> getToken() {
+			return token(node);
+		}
+
+		public boolean firstChild() {
+			return moveTo(firstChildren[node]);
+		}
+
+		public boolean nextSibling() {
+			return moveTo(nextSiblings[node]);
+		}
+
+		public boolean parent() {
+			return moveTo(parents[node]);
+		}
+
+		public Cursor copy() {
+			return new Cursor(node);
+		}
+
+		private boolean moveTo(int target) {
+			if (target < 0)
+				return false;
+			node = target;
+			return true;
+		}
+
+	}
+
+}
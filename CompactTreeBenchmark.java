@@ -0,0 +1,42 @@
+// Compares the TreeNode graph with the arena-backed CompactParseTree: parse
+// time and allocation, then the heap each representation retains per node.
+public class CompactTreeBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		for (int size : new int[] { 64 * 1024, 1024 * 1024 }) {
+			String source = Benchmark.program(size);
+			TokenBuffer tokens = LexicalAnalyser.tokenise(source);
+			String label = (size / 1024) + "KB ";
+
+			Benchmark.run(label + "parse to TreeNode", source.length(),
+					() -> SyntacticAnalyser.parse(TokenStream.of(tokens.asList())));
+			Benchmark.run(label + "parse to CompactParseTree", source.length(),
+					() -> SyntacticAnalyser.parseCompact(tokens));
+
+			int nodes = SyntacticAnalyser.parseCompact(tokens).size();
+			long treeNodes = retained(() -> SyntacticAnalyser.parse(TokenStream.of(tokens.asList())));
+			long compact = retained(() -> SyntacticAnalyser.parseCompact(tokens));
+			System.out.printf("%s%d nodes: TreeNode %.1f B/node, CompactParseTree %.1f B/node%n", label, nodes,
+					(double) treeNodes / nodes, (double) compact / nodes);
+		}
+	}
+
+	// Heap still in use while the operation's result is reachable
+	private static long retained(Benchmark.Operation operation) throws Exception {
+		long before = usedAfterGc();
+		Object result = operation.run();
+		long after = usedAfterGc();
+		Benchmark.sink += System.identityHashCode(result);
+		return after - before;
+	}
+
+	private static long usedAfterGc() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
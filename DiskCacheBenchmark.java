@@ -0,0 +1,80 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+// Simulates a restart over a corpus of 64 generated 16KB sources: the cache is
+// filled by one process-lifetime and reopened, then the corpus is parsed
+// through it. Reports how long reopening takes, the first pass after it
+// against a first pass with no cache, and steady state both ways: a parse
+// through the cache, which decodes nothing, then with its TreeNodes decoded,
+// and the mapped tree alone.
+public class DiskCacheBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		String[] sources = new String[64];
+		long chars = 0;
+		for (int i = 0; i < sources.length; i++) {
+			ProgramGenerator generator = new ProgramGenerator(i);
+			generator.setTargetSize(16 * 1024);
+			StringBuilder source = new StringBuilder();
+			generator.generate(source);
+			sources[i] = source.toString();
+			chars += sources[i].length();
+		}
+
+		Path dir = Files.createTempDirectory("parse-cache");
+		try {
+			long start = System.nanoTime();
+			for (String source : sources)
+				SyntacticAnalyser.parse(LexicalAnalyser.stream(source));
+			System.out.printf("first pass, no cache: %.1f ms%n", (System.nanoTime() - start) / 1e6);
+
+			try (DiskParseCache cache = DiskParseCache.open(dir, 256L << 20)) {
+				for (String source : sources)
+					cache.parse(source);
+				System.out.println(cache);
+			}
+
+			start = System.nanoTime();
+			try (DiskParseCache cache = DiskParseCache.open(dir, 256L << 20)) {
+				System.out.printf("reopen: %.1f ms%n", (System.nanoTime() - start) / 1e6);
+				start = System.nanoTime();
+				for (String source : sources)
+					cache.parse(source);
+				System.out.printf("first pass, warm cache: %.1f ms%n", (System.nanoTime() - start) / 1e6);
+
+				Benchmark.run("64 x 16KB parse", chars, () -> {
+					int sum = 0;
+					for (String source : sources)
+						sum += SyntacticAnalyser.parse(LexicalAnalyser.stream(source)).hashCode();
+					return sum;
+				});
+				Benchmark.run("64 x 16KB disk cache, parse", chars, () -> {
+					int sum = 0;
+					for (String source : sources)
+						sum += cache.parse(source).hashCode();
+					return sum;
+				});
+				Benchmark.run("64 x 16KB disk cache, decoded", chars, () -> {
+					int sum = 0;
+					for (String source : sources)
+						sum += cache.parse(source).getRoot().hashCode();
+					return sum;
+				});
+				Benchmark.run("64 x 16KB disk cache, mapped", chars, () -> {
+					int sum = 0;
+					for (String source : sources)
+						sum += cache.get(source).size();
+					return sum;
+				});
+				System.out.println(cache);
+			}
+		} finally {
+			try (Stream<Path> files = Files.walk(dir)) {
+				files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+			}
+		}
+	}
+
+}
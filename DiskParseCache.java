@@ -0,0 +1,481 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// Keeps parse results on disk so a restarted process does not parse its
+// sources again. Results live in append-only segment files in one directory:
+//
+//   segment: magic "PSEG", version byte, tree format version byte, lexer version byte,
+//            grammar fingerprint (16 ASCII hex digits), records
+//   record:  source SHA-256 (32 bytes), source length (int), kind byte, payload length (int),
+//            payload CRC32 (int), payload
+//
+// Records are found by the SHA-256 of the source's UTF-16 code units together
+// with its length in chars, and the stored key is checked again on read, so a
+// hit is for the same text short of a SHA-256 collision.
+//
+// A tree's payload is the ParseTreeWriter format; a syntax or lexical error's
+// is its line, column and message. Opening the cache maps each segment and
+// reads only the record headers to index them; payloads stay in the mapping
+// until asked for, and a tree hit is read in place: get gives the
+// MappedParseTree and parse a ParseTree that decodes from it only once its
+// TreeNodes are asked for. Restored trees carry their token values but not
+// their source positions.
+//
+// Segments written by another version of the cache, the tree format
+// (ParseTreeWriter.VERSION) or the lexer (LexicalScanner.VERSION), or for
+// another grammar fingerprint, are deleted on open, so a change to any of
+// them can never serve stale trees or errors. Payloads are
+// checked against their CRC when read, and a truncated record at the end of a
+// segment, left by a crash mid-write, is cut off on open; nothing is synced,
+// so a crash only loses results.
+//
+// Disk use is kept under maxBytes by compaction: once the segments add up to
+// more, the oldest is dropped, first copying forward the records read since
+// they were written. Records that keep being used survive; the rest age out.
+public final class DiskParseCache implements Closeable {
+
+	static final byte[] MAGIC = { 'P', 'S', 'E', 'G' };
+	static final int VERSION = 3;
+
+	static final int SEGMENT_HEADER = MAGIC.length + 3 + 16;
+	static final int DIGEST = 32;
+	// Offsets within a record of its kind, payload length and CRC
+	private static final int KIND = DIGEST + 4;
+	private static final int LENGTH = KIND + 1;
+	private static final int CRC = LENGTH + 4;
+	private static final int RECORD_HEADER = CRC + 4;
+	private static final byte TREE = 0;
+	private static final byte SYNTAX_ERROR = 1;
+	private static final byte LEXICAL_ERROR = 2;
+	// Below this a segment is not worth its own file
+	private static final long MIN_SEGMENT_BYTES = 64 * 1024;
+
+	private final Path directory;
+	private final long maxBytes;
+	private final long segmentBytes;
+	private final Map<Key, Location> index = new HashMap<>();
+	// Oldest first; the last is the one being appended to
+	private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+	private int nextSegment;
+	private long diskBytes;
+	private long hits;
+	private long misses;
+	private long compactions;
+
+	private DiskParseCache(Path directory, long maxBytes) {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		// Four segments to the budget, so compacting one frees a quarter of it
+		this.segmentBytes = Math.min(Integer.MAX_VALUE, Math.max(MIN_SEGMENT_BYTES, maxBytes / 4));
+	}
+
+	// Opens or creates the cache in the given directory, which it owns
+	public static DiskParseCache open(Path directory, long maxBytes) throws IOException {
+		Files.createDirectories(directory);
+		DiskParseCache cache = new DiskParseCache(directory, maxBytes);
+		try {
+			cache.load();
+		} catch (IOException e) {
+			cache.close();
+			throw e;
+		}
+		return cache;
+	}
+
+	private void load() throws IOException {
+		List<Integer> ids = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*.seg")) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				try {
+					ids.add(Integer.parseInt(name.substring("segment-".length(), name.length() - ".seg".length())));
+				} catch (NumberFormatException e) {
+					// Not one of ours
+				}
+			}
+		}
+		ids.sort(null);
+		for (int id : ids) {
+			nextSegment = id + 1;
+			Segment segment = new Segment(id, segmentFile(id));
+			if (!segment.readHeader()) {
+				segment.delete();
+				continue;
+			}
+			segment.scan();
+			segments.add(segment);
+			diskBytes += segment.size;
+		}
+		if (segments.isEmpty() || segments.getLast().size >= segmentBytes)
+			roll();
+		compact();
+	}
+
+	// The tree for the source, parsing it and storing the result on a miss. A
+	// source that failed to lex or parse before throws the same error again.
+	public ParseTree parse(CharSequence source) throws IOException, LexicalException, SyntaxException {
+		Key key = Key.of(source);
+		MappedParseTree stored = get(key);
+		if (stored != null)
+			return stored.asParseTree();
+		ParseTree tree;
+		try {
+			tree = SyntacticAnalyser.parse(LexicalAnalyser.stream(source));
+		} catch (SyntaxException e) {
+			put(key, SYNTAX_ERROR, error(e.getLine(), e.getColumn(), e.getMessage()));
+			throw e;
+		} catch (LexicalException e) {
+			put(key, LEXICAL_ERROR, error(e.getLine(), e.getColumn(), e.getMessage()));
+			throw e;
+		}
+		put(key, TREE, ParseTreeWriter.toBytes(tree));
+		return tree;
+	}
+
+	// The stored tree for the source, read in place from its segment, or null
+	// if there is none
+	public MappedParseTree get(CharSequence source) throws IOException, LexicalException, SyntaxException {
+		return get(Key.of(source));
+	}
+
+	private MappedParseTree get(Key key) throws IOException, LexicalException, SyntaxException {
+		ByteBuffer payload;
+		byte kind;
+		synchronized (this) {
+			Location location = index.get(key);
+			payload = location != null ? location.payload(key) : null;
+			if (payload == null) {
+				if (location != null)
+					index.remove(key);
+				misses++;
+				return null;
+			}
+			location.used = true;
+			kind = location.kind;
+			hits++;
+		}
+		switch (kind) {
+		case TREE:
+			return MappedParseTree.wrap(payload);
+		case SYNTAX_ERROR:
+			throw new SyntaxException(errorMessage(payload), payload.getInt(0), payload.getInt(4));
+		case LEXICAL_ERROR:
+			throw new LexicalException(errorMessage(payload), payload.getInt(0), payload.getInt(4));
+		default:
+			throw new IllegalStateException("Unknown record kind " + kind);
+		}
+	}
+
+	private static byte[] error(int line, int column, String message) {
+		// The exception appends the position to its message; it is stored apart
+		String suffix = " at line " + line + ", column " + column;
+		if (line > 0 && message.endsWith(suffix))
+			message = message.substring(0, message.length() - suffix.length());
+		byte[] text = message.getBytes(StandardCharsets.UTF_8);
+		return ByteBuffer.allocate(8 + text.length).putInt(line).putInt(column).put(text).array();
+	}
+
+	private static String errorMessage(ByteBuffer payload) {
+		byte[] text = new byte[payload.limit() - 8];
+		payload.get(8, text);
+		return new String(text, StandardCharsets.UTF_8);
+	}
+
+	private synchronized void put(Key key, byte kind, byte[] payload) throws IOException {
+		if (segments.isEmpty())
+			throw new IllegalStateException("Cache is closed");
+		if (RECORD_HEADER + payload.length > maxBytes)
+			return;
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+		ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + payload.length);
+		record.put(key.digest).putInt(key.length).put(kind).putInt(payload.length).putInt((int) crc.getValue()).put(payload)
+				.flip();
+		append(key, kind, record);
+		compact();
+	}
+
+	private void append(Key key, byte kind, ByteBuffer record) throws IOException {
+		Segment segment = segments.getLast();
+		if (segment.size > SEGMENT_HEADER && segment.size + record.remaining() > segmentBytes)
+			segment = roll();
+		int length = record.remaining() - RECORD_HEADER;
+		long offset = segment.append(record);
+		diskBytes += RECORD_HEADER + length;
+		index.put(key, new Location(segment, offset, kind, length));
+	}
+
+	private Segment roll() throws IOException {
+		Segment segment = new Segment(nextSegment++, segmentFile(nextSegment - 1));
+		segment.create();
+		segments.add(segment);
+		diskBytes += segment.size;
+		return segment;
+	}
+
+	// Drops the oldest segments until the cache fits, keeping the records that
+	// were read since they were written by appending them to the newest
+	private void compact() throws IOException {
+		while (diskBytes > maxBytes && segments.size() > 1) {
+			Segment oldest = segments.removeFirst();
+			List<Map.Entry<Key, Location>> kept = new ArrayList<>();
+			for (Iterator<Map.Entry<Key, Location>> entries = index.entrySet().iterator(); entries.hasNext();) {
+				Map.Entry<Key, Location> entry = entries.next();
+				if (entry.getValue().segment != oldest)
+					continue;
+				if (entry.getValue().used)
+					kept.add(entry);
+				entries.remove();
+			}
+			for (Map.Entry<Key, Location> entry : kept) {
+				ByteBuffer record = entry.getValue().record();
+				if (record != null)
+					append(entry.getKey(), entry.getValue().kind, ByteBuffer.allocate(record.remaining()).put(record).flip());
+			}
+			diskBytes -= oldest.size;
+			oldest.delete();
+			compactions++;
+		}
+	}
+
+	private Path segmentFile(int id) {
+		return directory.resolve(String.format("segment-%08d.seg", id));
+	}
+
+	public synchronized long getHits() {
+		return this.hits;
+	}
+
+	public synchronized long getMisses() {
+		return this.misses;
+	}
+
+	public synchronized long getCompactions() {
+		return this.compactions;
+	}
+
+	public synchronized int size() {
+		return index.size();
+	}
+
+	// Bytes in the segment files, at most maxBytes once a put has compacted
+	public synchronized long getDiskBytes() {
+		return this.diskBytes;
+	}
+
+	// Stored trees stay readable after close: their mappings outlive the files
+	@Override
+	public synchronized void close() throws IOException {
+		IOException failure = null;
+		for (Segment segment : segments) {
+			try {
+				segment.channel.close();
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+		segments.clear();
+		index.clear();
+		if (failure != null)
+			throw failure;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "entries=" + index.size() + " segments=" + segments.size() + " disk=" + diskBytes + "/" + maxBytes
+				+ " hits=" + hits + " misses=" + misses + " compactions=" + compactions;
+	}
+
+	private final class Segment {
+
+		private final int id;
+		private final Path file;
+		private FileChannel channel;
+		private long size;
+		private MappedByteBuffer mapped;
+
+		Segment(int id, Path file) {
+			this.id = id;
+			this.file = file;
+		}
+
+		void create() throws IOException {
+			channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER);
+			header.put(MAGIC).put((byte) VERSION).put((byte) ParseTreeWriter.VERSION).put((byte) LexicalScanner.VERSION)
+					.put(ParsingTableSnapshot.FINGERPRINT.getBytes(StandardCharsets.US_ASCII)).flip();
+			append(header);
+		}
+
+		// False if the file is not a segment for these versions and this grammar
+		boolean readHeader() throws IOException {
+			channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			size = channel.size();
+			if (size < SEGMENT_HEADER)
+				return false;
+			ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER);
+			while (header.hasRemaining() && channel.read(header, header.position()) >= 0)
+				;
+			header.flip();
+			for (byte b : MAGIC)
+				if (header.get() != b)
+					return false;
+			if (header.get() != VERSION || header.get() != ParseTreeWriter.VERSION || header.get() != LexicalScanner.VERSION)
+				return false;
+			byte[] fingerprint = new byte[16];
+			header.get(fingerprint);
+			return new String(fingerprint, StandardCharsets.US_ASCII).equals(ParsingTableSnapshot.FINGERPRINT);
+		}
+
+		// Indexes the records from their headers alone, cutting off a torn one at the end
+		void scan() throws IOException {
+			ByteBuffer buffer = map(size);
+			long at = SEGMENT_HEADER;
+			while (at + RECORD_HEADER <= size) {
+				int length = buffer.getInt((int) at + LENGTH);
+				if (length < 0 || at + RECORD_HEADER + length > size)
+					break;
+				index.put(Key.read(buffer, (int) at), new Location(this, at, buffer.get((int) at + KIND), length));
+				at += RECORD_HEADER + length;
+			}
+			if (at < size) {
+				channel.truncate(at);
+				size = at;
+			}
+		}
+
+		// Offset the record was written at
+		long append(ByteBuffer record) throws IOException {
+			long offset = size;
+			while (record.hasRemaining())
+				size += channel.write(record, size);
+			return offset;
+		}
+
+		// The mapping, remapped when it does not yet cover the given end
+		ByteBuffer map(long end) throws IOException {
+			if (mapped == null || mapped.limit() < end)
+				mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			return mapped;
+		}
+
+		void delete() throws IOException {
+			channel.close();
+			mapped = null;
+			Files.deleteIfExists(file);
+		}
+
+		@Override
+		public String toString() {
+			return "segment " + id;
+		}
+
+	}
+
+	private static final class Location {
+
+		private final Segment segment;
+		private final long offset;
+		private final byte kind;
+		private final int length;
+		// Read since it was written, so compaction keeps it
+		private boolean used;
+
+		Location(Segment segment, long offset, byte kind, int length) {
+			this.segment = segment;
+			this.offset = offset;
+			this.kind = kind;
+			this.length = length;
+		}
+
+		// The whole record, or null if its payload fails its CRC
+		ByteBuffer record() throws IOException {
+			ByteBuffer mapped = segment.map(offset + RECORD_HEADER + length);
+			ByteBuffer record = mapped.slice((int) offset, RECORD_HEADER + length);
+			CRC32 crc = new CRC32();
+			crc.update(record.slice(RECORD_HEADER, length));
+			return (int) crc.getValue() == record.getInt(CRC) ? record : null;
+		}
+
+		// The payload, or null if it fails its CRC or the record was not written
+		// for the key; the CRC does not cover the header
+		ByteBuffer payload(Key key) throws IOException {
+			ByteBuffer record = record();
+			return record != null && key.equals(Key.read(record, 0)) ? record.slice(RECORD_HEADER, length) : null;
+		}
+
+	}
+
+	private static final class Key {
+
+		private final byte[] digest;
+		private final int length;
+
+		private Key(byte[] digest, int length) {
+			this.digest = digest;
+			this.length = length;
+		}
+
+		// Hashes the UTF-16 code units rather than an encoding, which would map
+		// unpaired surrogates to the same replacement bytes
+		static Key of(CharSequence source) {
+			MessageDigest sha;
+			try {
+				sha = MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException e) {
+				// Every Java platform is required to provide it
+				throw new IllegalStateException(e);
+			}
+			byte[] chunk = new byte[8192];
+			int length = source.length();
+			for (int i = 0; i < length;) {
+				int n = 0;
+				for (; n < chunk.length && i < length; i++) {
+					char c = source.charAt(i);
+					chunk[n++] = (byte) (c >> 8);
+					chunk[n++] = (byte) c;
+				}
+				sha.update(chunk, 0, n);
+			}
+			return new Key(sha.digest(), length);
+		}
+
+		static Key read(ByteBuffer buffer, int at) {
+			byte[] digest = new byte[DIGEST];
+			buffer.get(at, digest);
+			return new Key(digest, buffer.getInt(at + DIGEST));
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Key && length == ((Key) other).length && Arrays.equals(digest, ((Key) other).digest);
+		}
+
+		@Override
+		public int hashCode() {
+			// The digest is already uniformly distributed
+			return (digest[0] & 0xFF) << 24 | (digest[1] & 0xFF) << 16 | (digest[2] & 0xFF) << 8 | digest[3] & 0xFF;
+		}
+
+	}
+
+}
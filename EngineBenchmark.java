@@ -0,0 +1,18 @@
+import java.util.List;
+
+// Compares the table-driven pushdown automaton with the generated
+// recursive-descent parser on the same token lists.
+public class EngineBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		for (int size : new int[] { 64 * 1024, 1024 * 1024 }) {
+			String source = Benchmark.program(size);
+			List<Token> tokens = LexicalAnalyser.analyse(source);
+			String label = (size / 1024) + "KB ";
+
+			for (ParserEngine engine : ParserEngine.values())
+				Benchmark.run(label + engine, source.length(), () -> SyntacticAnalyser.parse(tokens, engine));
+		}
+	}
+
+}
@@ -0,0 +1,45 @@
+import java.nio.charset.StandardCharsets;
+
+// Compares the binary tree format with the toString text form: encoded size,
+// time to write each, time to decode the binary form back into TreeNodes, and
+// a query answered by navigating the binary form in place. The text form is
+// only produced for the smaller inputs: its indentation grows with the depth
+// of the statement list, so it is quadratic in the program length.
+public class FormatBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		for (int size : new int[] { 16 * 1024, 64 * 1024, 1024 * 1024 }) {
+			String source = Benchmark.program(size);
+			ParseTree tree = SyntacticAnalyser.parse(LexicalAnalyser.stream(source));
+			byte[] binary = ParseTreeWriter.toBytes(tree);
+			MappedParseTree mapped = MappedParseTree.wrap(binary);
+			String label = (size / 1024) + "KB ";
+
+			System.out.printf("%s%d nodes: binary %d bytes (%.1f bytes/node)%n", label, mapped.size(), binary.length,
+					(double) binary.length / mapped.size());
+			if (size <= 64 * 1024) {
+				long text = tree.toString().getBytes(StandardCharsets.UTF_8).length;
+				System.out.printf("%stext %d bytes (%.0fx larger)%n", label, text, (double) text / binary.length);
+				Benchmark.run(label + "write text", source.length(),
+						() -> tree.toString().getBytes(StandardCharsets.UTF_8));
+			}
+			Benchmark.run(label + "write binary", source.length(), () -> ParseTreeWriter.toBytes(tree));
+			Benchmark.run(label + "read binary to TreeNodes", source.length(), () -> mapped.toParseTree());
+			Benchmark.run(label + "count statements in place", source.length(), () -> statements(mapped));
+		}
+	}
+
+	// Walks the statement lists of main without decoding anything else
+	private static int statements(MappedParseTree tree) {
+		int node = tree.firstChild(tree.root());
+		for (int i = 0; i < 13; i++)
+			node = tree.next(node);
+		int count = 0;
+		while (tree.childCount(node) == 2) {
+			count++;
+			node = tree.next(tree.firstChild(node));
+		}
+		return count;
+	}
+
+}
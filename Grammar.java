@@ -0,0 +1,379 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// The SimpleJava grammar as data. Rules are read from a grammar file, FIRST and
+// FOLLOW sets are computed from them and the LL(1) table is built, reporting
+// any conflict instead of letting a later entry overwrite an earlier one.
+// Running main regenerates ParsingTableSnapshot, the precompiled table the
+// parser loads at startup.
+public class Grammar {
+
+	private final TreeNode.Label start;
+	private final Map<TreeNode.Label, List<List<Symbol>>> rules = new LinkedHashMap<>();
+	private final Map<Pair<Symbol, Token.TokenType>, List<Symbol>> explicit = new LinkedHashMap<>();
+
+	private final Set<TreeNode.Label> nullable = EnumSet.noneOf(TreeNode.Label.class);
+	private final Map<TreeNode.Label, Set<Token.TokenType>> first = new EnumMap<>(TreeNode.Label.class);
+	private final Map<TreeNode.Label, Set<Token.TokenType>> follow = new EnumMap<>(TreeNode.Label.class);
+
+	private Grammar(String text) {
+		TreeNode.Label startSymbol = null;
+		String[] lines = text.split("\r?\n");
+		for (int n = 0; n < lines.length; n++) {
+			String line = lines[n].trim();
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+
+			int arrow = line.indexOf("->");
+			if (arrow < 0)
+				throw new IllegalArgumentException("Line " + (n + 1) + ": expected '->' in " + line);
+			String[] head = line.substring(0, arrow).trim().split("\\s+");
+			TreeNode.Label lhs = label(head[0], n);
+			if (startSymbol == null)
+				startSymbol = lhs;
+
+			List<List<Symbol>> alternatives = new ArrayList<>();
+			for (String alternative : line.substring(arrow + 2).split("\\|")) {
+				List<Symbol> rhs = new ArrayList<>();
+				for (String name : alternative.trim().split("\\s+"))
+					rhs.add(symbol(name, n));
+				if (rhs.size() > 1 && rhs.contains(TreeNode.Label.epsilon))
+					throw new IllegalArgumentException("Line " + (n + 1) + ": epsilon must stand alone");
+				alternatives.add(Collections.unmodifiableList(rhs));
+			}
+
+			if (head.length == 1) {
+				rules.computeIfAbsent(lhs, k -> new ArrayList<>()).addAll(alternatives);
+			} else if (head.length == 2 && head[1].startsWith("[") && head[1].endsWith("]")
+					&& alternatives.size() == 1) {
+				Token.TokenType lookahead = terminal(head[1].substring(1, head[1].length() - 1), n);
+				explicit.put(new Pair<>(lhs, lookahead), alternatives.get(0));
+			} else {
+				throw new IllegalArgumentException("Line " + (n + 1) + ": malformed rule " + line);
+			}
+		}
+		if (startSymbol == null)
+			throw new IllegalArgumentException("Grammar has no rules");
+		this.start = startSymbol;
+
+		for (List<List<Symbol>> alternatives : rules.values())
+			for (List<Symbol> rhs : alternatives)
+				for (Symbol symbol : rhs)
+					if (symbol.isVariable() && symbol != TreeNode.Label.epsilon && !rules.containsKey(symbol))
+						throw new IllegalArgumentException("No rule for " + symbol);
+
+		computeFirst();
+		computeFollow();
+	}
+
+	public static Grammar parse(String text) {
+		return new Grammar(text);
+	}
+
+	public static Grammar load(Path file) throws IOException {
+		return parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+	}
+
+	public TreeNode.Label getStart() {
+		return this.start;
+	}
+
+	// Non-terminals in the order the grammar file declares them
+	public Set<TreeNode.Label> nonTerminals() {
+		return Collections.unmodifiableSet(rules.keySet());
+	}
+
+	public List<List<Symbol>> productions(TreeNode.Label nonTerminal) {
+		return Collections.unmodifiableList(rules.getOrDefault(nonTerminal, Collections.emptyList()));
+	}
+
+	public boolean isNullable(TreeNode.Label nonTerminal) {
+		return nullable.contains(nonTerminal);
+	}
+
+	public Set<Token.TokenType> first(TreeNode.Label nonTerminal) {
+		return Collections.unmodifiableSet(first.get(nonTerminal));
+	}
+
+	public Set<Token.TokenType> follow(TreeNode.Label nonTerminal) {
+		return Collections.unmodifiableSet(follow.get(nonTerminal));
+	}
+
+	// Builds the LL(1) table: each production is entered under the FIRST set of
+	// its right-hand side, and under FOLLOW of its left-hand side if that can
+	// derive epsilon. Two different productions for one cell is a conflict.
+	public Map<Pair<Symbol, Token.TokenType>, List<Symbol>> table() {
+		Map<Pair<Symbol, Token.TokenType>, List<Symbol>> table = new LinkedHashMap<>();
+		for (Map.Entry<TreeNode.Label, List<List<Symbol>>> rule : rules.entrySet()) {
+			for (List<Symbol> rhs : rule.getValue()) {
+				Set<Token.TokenType> lookaheads = EnumSet.noneOf(Token.TokenType.class);
+				if (firstOf(rhs, lookaheads))
+					lookaheads.addAll(follow.get(rule.getKey()));
+				for (Token.TokenType lookahead : lookaheads)
+					enter(table, rule.getKey(), lookahead, rhs);
+			}
+		}
+		for (Map.Entry<Pair<Symbol, Token.TokenType>, List<Symbol>> entry : explicit.entrySet())
+			enter(table, (TreeNode.Label) entry.getKey().fst(), entry.getKey().snd(), entry.getValue());
+		return table;
+	}
+
+	public ParsingTable compile() {
+		return ParsingTable.compile(table());
+	}
+
+	private static void enter(Map<Pair<Symbol, Token.TokenType>, List<Symbol>> table, TreeNode.Label lhs,
+			Token.TokenType lookahead, List<Symbol> rhs) {
+		List<Symbol> existing = table.putIfAbsent(new Pair<>(lhs, lookahead), rhs);
+		if (existing != null && !existing.equals(rhs))
+			throw new IllegalStateException("LL(1) conflict for " + lhs + " on " + lookahead + ": " + existing
+					+ " and " + rhs);
+	}
+
+	// Adds FIRST of the sequence to the set and returns whether it can derive epsilon
+	private boolean firstOf(List<Symbol> sequence, Set<Token.TokenType> into) {
+		for (Symbol symbol : sequence) {
+			if (symbol == TreeNode.Label.epsilon)
+				continue;
+			if (!symbol.isVariable()) {
+				into.add((Token.TokenType) symbol);
+				return false;
+			}
+			into.addAll(first.get(symbol));
+			if (!nullable.contains(symbol))
+				return false;
+		}
+		return true;
+	}
+
+	private void computeFirst() {
+		for (TreeNode.Label nonTerminal : rules.keySet())
+			first.put(nonTerminal, EnumSet.noneOf(Token.TokenType.class));
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (Map.Entry<TreeNode.Label, List<List<Symbol>>> rule : rules.entrySet()) {
+				Set<Token.TokenType> set = first.get(rule.getKey());
+				for (List<Symbol> rhs : rule.getValue()) {
+					int before = set.size();
+					if (firstOf(rhs, set))
+						changed |= nullable.add(rule.getKey());
+					changed |= set.size() != before;
+				}
+			}
+		}
+	}
+
+	private void computeFollow() {
+		for (TreeNode.Label nonTerminal : rules.keySet())
+			follow.put(nonTerminal, EnumSet.noneOf(Token.TokenType.class));
+		follow.get(start).add(Token.TokenType.EOF);
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (Map.Entry<TreeNode.Label, List<List<Symbol>>> rule : rules.entrySet()) {
+				for (List<Symbol> rhs : rule.getValue()) {
+					for (int i = 0; i < rhs.size(); i++) {
+						Symbol symbol = rhs.get(i);
+						if (!symbol.isVariable() || symbol == TreeNode.Label.epsilon)
+							continue;
+						Set<Token.TokenType> set = follow.get(symbol);
+						int before = set.size();
+						if (firstOf(rhs.subList(i + 1, rhs.size()), set))
+							set.addAll(follow.get(rule.getKey()));
+						changed |= set.size() != before;
+					}
+				}
+			}
+		}
+	}
+
+	private static Symbol symbol(String name, int line) {
+		if (Character.isLowerCase(name.charAt(0)))
+			return label(name, line);
+		return terminal(name, line);
+	}
+
+	private static TreeNode.Label label(String name, int line) {
+		try {
+			return TreeNode.Label.valueOf(name);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Line " + (line + 1) + ": unknown non-terminal " + name);
+		}
+	}
+
+	private static Token.TokenType terminal(String name, int line) {
+		try {
+			return Token.TokenType.valueOf(name);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Line " + (line + 1) + ": unknown token type " + name);
+		}
+	}
+
+	// Java source for ParsingTableSnapshot holding the compiled table
+	String snapshotSource() {
+		ParsingTable table = compile();
+		StringBuilder out = new StringBuilder();
+		out.append("// Generated by Grammar from SimpleJava.grammar; do not edit by hand.\n");
+		out.append("// Regenerate with: java Grammar\n");
+		out.append("final class ParsingTableSnapshot {\n\n");
+		out.append("\t// Symbol names in id order; the table is stale if these no longer match the enums\n");
+		out.append("\tstatic final String SYMBOLS = \"").append(ParsingTable.symbolNames()).append("\";\n\n");
+		out.append("\t// Hash of the symbols, table and productions, identifying this grammar version\n");
+		out.append("\tstatic final String FINGERPRINT = \"").append(table.fingerprint()).append("\";\n\n");
+		out.append("\t// One char per cell, row by row: the production id plus one, or 0 for an error entry\n");
+		out.append("\tstatic final String TABLE = \"\"");
+		int[] cells = table.encodeTable();
+		for (int i = 0; i < cells.length; i += ParsingTable.TERMINALS.length)
+			appendChars(out, Arrays.copyOfRange(cells, i, i + ParsingTable.TERMINALS.length));
+		out.append(";\n\n");
+		out.append("\t// Each production as its length followed by its symbol ids\n");
+		out.append("\tstatic final String PRODUCTIONS = \"\"");
+		for (int production = 0; production < table.productionCount(); production++) {
+			int[] rhs = table.rhs(production);
+			int[] encoded = new int[rhs.length + 1];
+			encoded[0] = rhs.length;
+			System.arraycopy(rhs, 0, encoded, 1, rhs.length);
+			appendChars(out, encoded);
+		}
+		out.append(";\n\n");
+		out.append("\t// FOLLOW of each label in ordinal order, as a count followed by token type ids;\n");
+		out.append("\t// error recovery synchronises on these\n");
+		out.append("\tstatic final String FOLLOW = \"\"");
+		for (TreeNode.Label label : ParsingTable.NON_TERMINALS) {
+			Set<Token.TokenType> set = follow.getOrDefault(label, Collections.emptySet());
+			int[] encoded = new int[set.size() + 1];
+			encoded[0] = set.size();
+			int i = 1;
+			for (Token.TokenType terminal : set)
+				encoded[i++] = terminal.ordinal();
+			appendChars(out, encoded);
+		}
+		out.append(";\n\n}\n");
+		return out.toString();
+	}
+
+	private static void appendChars(StringBuilder out, int[] values) {
+		out.append("\n\t\t\t+ \"");
+		for (int value : values) {
+			if (value < 0 || value > 0377)
+				throw new IllegalStateException("Snapshot value out of range: " + value);
+			out.append('\\').append((char) ('0' + (value >> 6))).append((char) ('0' + ((value >> 3) & 7)))
+					.append((char) ('0' + (value & 7)));
+		}
+		out.append('"');
+	}
+
+	// Java source for RecursiveDescentParser: one method per non-terminal that
+	// switches on the lookahead, with one case group per production. A
+	// production ending in its own non-terminal becomes a loop, so right
+	// recursion such as los -> stat los does not deepen the call stack.
+	String parserSource() {
+		Map<Pair<Symbol, Token.TokenType>, List<Symbol>> table = table();
+		StringBuilder out = new StringBuilder();
+		out.append("// Generated by Grammar from SimpleJava.grammar; do not edit by hand.\n");
+		out.append("// Regenerate with: java Grammar\n");
+		out.append("// Recursive-descent engine with one method per non-terminal. It builds the\n");
+		out.append("// same ParseTree as the table-driven pushdown automaton in SyntacticAnalyser.\n");
+		out.append("final class RecursiveDescentParser {\n\n");
+		out.append("\tprivate final TokenStream tokens;\n\n");
+		out.append("\tprivate RecursiveDescentParser(TokenStream tokens) {\n\t\tthis.tokens = tokens;\n\t}\n\n");
+		out.append("\tstatic ParseTree parse(TokenStream tokens) throws SyntaxException, LexicalException {\n");
+		out.append("\t\tTreeNode root = new TreeNode(TreeNode.Label.").append(start).append(", null);\n");
+		out.append("\t\tnew RecursiveDescentParser(tokens).").append(start).append("(root);\n");
+		out.append("\t\tif (tokens.peek().getType() != Token.TokenType.EOF)\n");
+		out.append("\t\t\tthrow SyntacticAnalyser.error(\"Extra tokens at the end\", tokens.peek());\n");
+		out.append("\t\treturn new ParseTree(root);\n\t}\n");
+
+		for (TreeNode.Label nonTerminal : rules.keySet()) {
+			// Lookaheads grouped by production, in the order productions are declared
+			Map<List<Symbol>, List<Token.TokenType>> cases = new LinkedHashMap<>();
+			for (List<Symbol> rhs : rules.get(nonTerminal))
+				cases.put(rhs, new ArrayList<>());
+			for (Token.TokenType lookahead : Token.TokenType.values()) {
+				List<Symbol> rhs = table.get(new Pair<Symbol, Token.TokenType>(nonTerminal, lookahead));
+				if (rhs != null)
+					cases.computeIfAbsent(rhs, k -> new ArrayList<>()).add(lookahead);
+			}
+			boolean loops = false;
+			for (List<Symbol> rhs : cases.keySet())
+				loops |= rhs.get(rhs.size() - 1) == nonTerminal;
+
+			String indent = loops ? "\t\t\t" : "\t\t";
+			out.append("\n\tprivate void ").append(nonTerminal)
+					.append("(TreeNode node) throws SyntaxException, LexicalException {\n");
+			if (loops)
+				out.append("\t\twhile (true) {\n");
+			out.append(indent).append("Token token = tokens.peek();\n");
+			out.append(indent).append("switch (token.getType()) {\n");
+			for (Map.Entry<List<Symbol>, List<Token.TokenType>> entry : cases.entrySet()) {
+				if (entry.getValue().isEmpty())
+					continue;
+				for (Token.TokenType lookahead : entry.getValue())
+					out.append(indent).append("case ").append(lookahead).append(":\n");
+				List<Symbol> rhs = entry.getKey();
+				boolean tail = rhs.get(rhs.size() - 1) == nonTerminal;
+				for (int i = 0; i < rhs.size(); i++) {
+					Symbol symbol = rhs.get(i);
+					out.append(indent).append('\t');
+					if (symbol == TreeNode.Label.epsilon)
+						out.append("epsilon(node);\n");
+					else if (!symbol.isVariable())
+						out.append("match(node, Token.TokenType.").append(symbol).append(");\n");
+					else if (tail && i == rhs.size() - 1)
+						out.append("node = child(node, TreeNode.Label.").append(symbol).append(");\n");
+					else
+						out.append(symbol).append("(child(node, TreeNode.Label.").append(symbol).append("));\n");
+				}
+				out.append(indent).append('\t').append(tail ? "continue;\n" : "return;\n");
+			}
+			out.append(indent).append("default:\n");
+			out.append(indent).append("\tthrow SyntacticAnalyser.error(\"No production found for ").append(nonTerminal)
+					.append(" with input \" + token.getType(), token);\n");
+			out.append(indent).append("}\n");
+			if (loops)
+				out.append("\t\t}\n");
+			out.append("\t}\n");
+		}
+
+		out.append("\n\tprivate void match(TreeNode parent, Token.TokenType expected) throws SyntaxException, LexicalException {\n");
+		out.append("\t\tToken token = tokens.peek();\n");
+		out.append("\t\tif (token.getType() != expected)\n");
+		out.append("\t\t\tthrow SyntacticAnalyser.error(\"Expected \" + expected + \" but found \" + token.getType(), token);\n");
+		out.append("\t\tchild(parent, TreeNode.Label.terminal).setToken(tokens.next());\n\t}\n");
+		out.append("\n\tprivate static void epsilon(TreeNode parent) {\n");
+		out.append("\t\tchild(parent, TreeNode.Label.epsilon);\n\t}\n");
+		out.append("\n\tprivate static TreeNode child(TreeNode parent, TreeNode.Label label) {\n");
+		out.append("\t\tTreeNode child = new TreeNode(label, parent);\n");
+		out.append("\t\tparent.addChild(child);\n\t\treturn child;\n\t}\n\n}\n");
+		return out.toString();
+	}
+
+	// Usage: java Grammar [grammar file] [snapshot file] [parser file]
+	public static void main(String[] args) throws IOException {
+		Path grammarFile = Paths.get(args.length > 0 ? args[0] : "SimpleJava.grammar");
+		Path snapshotFile = Paths.get(args.length > 1 ? args[1] : "ParsingTableSnapshot.java");
+		Path parserFile = Paths.get(args.length > 2 ? args[2] : "RecursiveDescentParser.java");
+
+		Grammar grammar = load(grammarFile);
+		ParsingTable table = grammar.compile();
+		Files.write(snapshotFile, grammar.snapshotSource().getBytes(StandardCharsets.UTF_8));
+		System.out.println("Wrote " + snapshotFile + " (" + table.productionCount() + " productions, fingerprint "
+				+ table.fingerprint() + ")");
+		Files.write(parserFile, grammar.parserSource().getBytes(StandardCharsets.UTF_8));
+		System.out.println("Wrote " + parserFile);
+	}
+
+}
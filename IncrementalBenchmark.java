@@ -0,0 +1,34 @@
+// Latency of a one-character edit in the middle of a 100k-line program:
+// incremental reparse against lexing and parsing the whole file again. The
+// edit alternately inserts and removes a digit, so every incremental run
+// starts from the tree the previous one produced.
+public class IncrementalBenchmark {
+
+	private static String source;
+	private static ParseTree tree;
+
+	public static void main(String[] args) throws Exception {
+		String program = Benchmark.program(100_000 * 44);
+		long lines = program.chars().filter(c -> c == '\n').count();
+		System.out.println(lines + " lines, " + program.length() / 1024 + "KB");
+
+		// The number after "int vN = " on a declaration half way down
+		int offset = program.indexOf(" = ", program.indexOf("\t\tint ", program.length() / 2)) + 3;
+		TextEdit insert = new TextEdit(offset, 0, "1");
+		TextEdit remove = new TextEdit(offset, 1, "");
+
+		source = program;
+		tree = SyntacticAnalyser.parse(LexicalAnalyser.stream(source));
+		Benchmark.run("one-character edit, incremental", program.length(), () -> {
+			TextEdit edit = source.length() == program.length() ? insert : remove;
+			tree = IncrementalParser.reparse(tree, source, edit);
+			source = edit.apply(source);
+			return tree;
+		});
+		Benchmark.run("one-character edit, full reparse", program.length(), () -> {
+			source = (source.length() == program.length() ? insert : remove).apply(source);
+			return SyntacticAnalyser.parse(LexicalAnalyser.stream(source));
+		});
+	}
+
+}
@@ -0,0 +1,112 @@
+import java.util.List;
+
+// Reparses after an edit by relexing and reparsing only the innermost
+// statement around it, then splicing the result into the previous tree.
+//
+// A statement starts after ';', '{' or '}' and ends with ';' or '}'. An edit
+// from its first character up to (not including) its last therefore cannot
+// change how the tokens around it are lexed, and no parsing decision inside it
+// depends on the token that follows. The region is parsed as a statement list
+// ending at EOF, since the edit may have split the statement in two or removed
+// it entirely. Everything outside the region parses as before, so those
+// subtrees are reused as they are; their tokens pick up the shifted offsets
+// lazily through SourceText.edit rather than being visited here. Whenever the
+// region does not parse on its own, or no statement encloses the edit, the
+// whole text is reparsed instead, which also reports the same error a full
+// parse would. So is a tree whose text is shared, such as one from
+// ParseCache, since editing that text would move every other caller's tokens.
+public final class IncrementalParser {
+
+	private IncrementalParser() {
+	}
+
+	// The previous tree is updated in place and must not be used afterwards,
+	// unless its text is shared, when it is left as it was
+	public static ParseTree reparse(ParseTree previous, CharSequence previousSource, TextEdit edit)
+			throws SyntaxException, LexicalException {
+		String source = edit.apply(previousSource);
+		TreeNode statement = enclosingStatement(previous.getRoot(), edit);
+		if (statement == null || firstToken(statement).getSource().isShared())
+			return SyntacticAnalyser.parse(LexicalAnalyser.stream(source));
+
+		int start = statement.getStartOffset();
+		int end = statement.getEndOffset() + edit.delta();
+		// The tokens around the statement keep viewing the previous text, which
+		// from here on forwards them to the edited one. Only the statement's
+		// own tokens can overlap the edit, so its span is all the old text keeps.
+		SourceText text = firstToken(statement).getSource().edit(edit, source, start, statement.getEndOffset());
+		ParseTreeBuilder builder = new ParseTreeBuilder();
+		try {
+			SyntacticAnalyser.parse(TokenStream.of(new LexicalScanner(text, start, end)), builder,
+					TreeNode.Label.los);
+		} catch (SyntaxException | LexicalException e) {
+			return SyntacticAnalyser.parse(LexicalAnalyser.stream(source));
+		}
+
+		splice(statement, builder.getTree().getRoot());
+		return new ParseTree(previous.getRoot());
+	}
+
+	// The deepest stat whose span holds the edit, leaving its last character
+	// untouched; null if there is none
+	static TreeNode enclosingStatement(TreeNode root, TextEdit edit) {
+		int from = edit.getOffset();
+		int to = from + edit.getRemovedLength();
+		TreeNode found = null;
+		TreeNode node = root;
+		while (node != null) {
+			if (node.getLabel() == TreeNode.Label.stat) {
+				if (node.getStartOffset() <= from && to < node.getEndOffset())
+					found = node;
+				else
+					break;
+			}
+			// Descend into the last child starting at or before the edit, checking
+			// from the end so a los step looks only at the rest of the list. The
+			// walk is iterative, so long statement lists cost no stack.
+			TreeNode next = null;
+			List<TreeNode> children = node.getChildren();
+			for (int i = children.size() - 1; i >= 0 && next == null; i--) {
+				int offset = children.get(i).getStartOffset();
+				if (offset >= 0 && offset <= from)
+					next = children.get(i);
+			}
+			node = next;
+		}
+		return found;
+	}
+
+	private static Token firstToken(TreeNode node) {
+		while (!node.getToken().isPresent())
+			node = node.getChildren().get(0);
+		return node.getToken().get();
+	}
+
+	// Replaces the statement with the region's statement list. The statement's
+	// parent is a los whose children are [statement, tail]; the region's chain
+	// takes their place and its final empty los is replaced by the old tail.
+	private static void splice(TreeNode statement, TreeNode region) {
+		TreeNode list = statement.getParent();
+		TreeNode tail = list.getChildren().get(1);
+		if (region.getChildren().get(0).getLabel() == TreeNode.Label.epsilon) {
+			// The statement was deleted: the tail takes the list's place
+			List<TreeNode> siblings = list.getParent().getChildren();
+			siblings.set(siblings.indexOf(list), tail);
+			tail.setParent(list.getParent());
+			return;
+		}
+
+		List<TreeNode> children = list.getChildren();
+		children.clear();
+		for (TreeNode child : region.getChildren()) {
+			child.setParent(list);
+			children.add(child);
+		}
+		TreeNode last = list;
+		while (last.getChildren().get(1).getChildren().get(0).getLabel() == TreeNode.Label.stat)
+			last = last.getChildren().get(1);
+		last.getChildren().set(1, tail);
+		tail.setParent(last);
+	}
+
+}
@@ -0,0 +1,30 @@
+import jdk.jfr.Recording;
+
+// What collecting ParseStats costs. The plain parse is the disabled path, which
+// must match a build without instrumentation; the others pay for the counters,
+// the timed stream, and a JFR recording with the parse and lex events on.
+public class InstrumentationBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		String source = Benchmark.program(1024 * 1024);
+		TokenBuffer tokens = LexicalAnalyser.tokenise(source);
+
+		Benchmark.run("1MB parse, stats off", source.length(), () -> SyntacticAnalyser.parse(tokens.asList()));
+		Benchmark.run("1MB parse, stats on", source.length(),
+				() -> SyntacticAnalyser.parse(TokenStream.of(tokens.asList()), new ParseStats()));
+		Benchmark.run("1MB stream parse, stats off", source.length(),
+				() -> SyntacticAnalyser.parse(LexicalAnalyser.stream(source)));
+		Benchmark.run("1MB stream parse, stats on", source.length(),
+				() -> SyntacticAnalyser.parse(LexicalAnalyser.stream(source), new ParseStats()));
+
+		try (Recording recording = new Recording()) {
+			recording.enable("simplejava.Parse");
+			recording.enable("simplejava.Lex");
+			recording.start();
+			Benchmark.run("1MB stream parse, stats on, JFR recording", source.length(),
+					() -> SyntacticAnalyser.parse(LexicalAnalyser.stream(source), new ParseStats()));
+		}
+		System.out.println(ParseMetrics.global());
+	}
+
+}
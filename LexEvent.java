@@ -0,0 +1,23 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// JFR event for an instrumented LexicalAnalyser.tokenise.
+@Name("simplejava.Lex")
+@Label("SimpleJava Lex")
+@Category("SimpleJava")
+@Description("One instrumented LexicalAnalyser.tokenise")
+final class LexEvent extends Event {
+
+	@Label("Tokens")
+	long tokens;
+
+	@Label("Characters")
+	long characters;
+
+	@Label("Failed")
+	boolean failed;
+
+}
@@ -0,0 +1,79 @@
+// Canonical instances for identifier and literal text. The same few hundred
+// names and numbers repeat throughout large sources, so tokens that resolve to
+// a pooled lexeme share one String instead of each holding a copy.
+//
+// The table has a fixed number of slots and two candidates per hash. A new
+// lexeme takes the first candidate and demotes its occupant to the second,
+// evicting whatever was there, so the pool never grows past its capacity.
+// Every read verifies the characters, and Strings are immutable, so a pool can
+// be shared between threads without locking: a lost race only costs a miss.
+public class LexemePool {
+
+	// Long lexemes are rare repeats and would only evict useful entries
+	private static final int MAX_LENGTH = 64;
+
+	private static final LexemePool SHARED = new LexemePool(8192);
+
+	private final String[] slots;
+	private final int mask;
+
+	// Capacity is rounded up to a power of two
+	public LexemePool(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		this.slots = new String[size];
+		this.mask = size - 1;
+	}
+
+	// The process-wide pool used when a caller does not supply one
+	public static LexemePool shared() {
+		return SHARED;
+	}
+
+	public int capacity() {
+		return slots.length;
+	}
+
+	// Slots in use, never more than the capacity
+	int size() {
+		int size = 0;
+		for (String slot : slots)
+			if (slot != null)
+				size++;
+		return size;
+	}
+
+	public String intern(CharSequence source, int start, int end) {
+		int length = end - start;
+		if (length > MAX_LENGTH)
+			return source.subSequence(start, end).toString();
+
+		int hash = 0;
+		for (int i = start; i < end; i++)
+			hash = 31 * hash + source.charAt(i);
+		hash ^= hash >>> 16;
+
+		int first = hash & mask;
+		int second = first ^ 1;
+		String candidate = slots[first];
+		if (candidate != null && matches(candidate, source, start, length))
+			return candidate;
+		String other = slots[second];
+		if (other != null && matches(other, source, start, length))
+			return other;
+
+		String lexeme = source.subSequence(start, end).toString();
+		slots[second] = candidate;
+		slots[first] = lexeme;
+		return lexeme;
+	}
+
+	private static boolean matches(String candidate, CharSequence source, int start, int length) {
+		if (candidate.length() != length)
+			return false;
+		for (int i = 0; i < length; i++)
+			if (candidate.charAt(i) != source.charAt(start + i))
+				return false;
+		return true;
+	}
+
+}
@@ -1,10 +1,117 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 public class LexicalAnalyser {
 
-	public static List<Token> analyse(String sourceCode) throws LexicalException {
+	// Returns a mutable list of its own, as it always has; tokenise(...).asList()
+	// gives the cheaper read-only view that creates each Token on access
+	public static List<Token> analyse(CharSequence sourceCode) throws LexicalException {
+		return new ArrayList<>(tokenise(sourceCode).asList());
+	}
+
+	// The file is memory-mapped rather than read into a String, so large sources
+	// are lexed without a heap copy of their text
+	public static List<Token> analyse(Path file) throws IOException, LexicalException {
+		return analyse(MappedSource.open(file));
+	}
+
+	public static List<Token> analyse(Reader reader) throws IOException, LexicalException {
+		return analyse(read(reader));
+	}
+
+	public static TokenBuffer tokenise(CharSequence sourceCode) throws LexicalException {
+		return tokenise(sourceCode, LexemePool.shared());
+	}
+
+	// Identifier and literal text is canonicalised through the given pool, which
+	// may be shared across a batch of parses; null disables pooling
+	public static TokenBuffer tokenise(CharSequence sourceCode, LexemePool pool) throws LexicalException {
+		LexicalScanner scanner = new LexicalScanner(sourceCode, pool);
+		TokenBuffer buffer = new TokenBuffer(scanner.getSource());
+		scanner.scanInto(buffer);
+		return buffer;
+	}
+
+	// Adds the lexing time to stats and ParseMetrics.global() and emits a
+	// simplejava.Lex JFR event; pass the same stats to SyntacticAnalyser.parse to
+	// complete them. Tokens are counted by the parse as it reads them.
+	public static TokenBuffer tokeniseTimed(CharSequence sourceCode, ParseStats stats) throws LexicalException {
+		LexEvent event = new LexEvent();
+		event.begin();
+		long start = System.nanoTime();
+		TokenBuffer buffer = null;
+		try {
+			buffer = tokenise(sourceCode);
+			return buffer;
+		} finally {
+			long nanos = System.nanoTime() - start;
+			stats.lexNanos += nanos;
+			stats.failed |= buffer == null;
+			ParseMetrics.global().recordLex(nanos);
+			event.end();
+			if (event.shouldCommit()) {
+				event.tokens = buffer != null ? buffer.size() : 0;
+				event.characters = sourceCode.length();
+				event.failed = buffer == null;
+				event.commit();
+			}
+		}
+	}
+
+	// Tolerant mode: each bad lexeme is added to errors and becomes an ERROR
+	// token spanning it, and scanning carries on, so one pass finds every
+	// lexical problem. Only a LexicalException from the errors list describes it.
+	public static TokenBuffer tokeniseTolerant(CharSequence sourceCode, List<LexicalException> errors) {
+		LexicalScanner scanner = new LexicalScanner(sourceCode, LexemePool.shared(), errors);
+		TokenBuffer buffer = new TokenBuffer(scanner.getSource());
+		try {
+			scanner.scanInto(buffer);
+		} catch (LexicalException e) {
+			throw new IllegalStateException(e);
+		}
+		return buffer;
+	}
+
+	// Lexes on demand as the parser pulls tokens, rather than up front
+	public static TokenStream stream(CharSequence sourceCode) {
+		return stream(sourceCode, LexemePool.shared());
+	}
+
+	public static TokenStream stream(CharSequence sourceCode, LexemePool pool) {
+		return TokenStream.of(new LexicalScanner(sourceCode, pool));
+	}
+
+	// Tolerant as above; errors fills as the stream is read and the stream
+	// itself never throws
+	public static TokenStream streamTolerant(CharSequence sourceCode, List<LexicalException> errors) {
+		return TokenStream.of(new LexicalScanner(sourceCode, LexemePool.shared(), errors));
+	}
+
+	public static TokenStream stream(Path file) throws IOException {
+		return stream(MappedSource.open(file));
+	}
+
+	public static TokenStream stream(Reader reader) throws IOException {
+		return stream(read(reader));
+	}
+
+	// A Reader cannot be revisited, so its text is buffered once for the scanner;
+	// prefer the Path entry points for large files
+	private static CharSequence read(Reader reader) throws IOException {
+		StringBuilder text = new StringBuilder();
+		char[] chunk = new char[8192];
+		for (int n = reader.read(chunk); n >= 0; n = reader.read(chunk))
+			text.append(chunk, 0, n);
+		return text;
+	}
+
+	// The original spaced-string-and-split lexer, kept for differential comparison
+	// against the single-pass scanner
+	static List<Token> analyseLegacy(String sourceCode) throws LexicalException {
 
 		List<Token> output = new ArrayList<Token>();
 		String spaced = "";
@@ -20,25 +127,26 @@ public class LexicalAnalyser {
 				switch (c) {
 				case '|':
 				case '&':
-					if (sourceCode.charAt(i + 1) == c)
+					if (i + 1 < sourceCode.length() && sourceCode.charAt(i + 1) == c)
 						spaced += sourceCode.charAt(++i);
 					break;
 				case '<':
 				case '=':
 				case '!':
 				case '>':
-					if (sourceCode.charAt(i + 1) == '=')
+					if (i + 1 < sourceCode.length() && sourceCode.charAt(i + 1) == '=')
 						spaced += sourceCode.charAt(++i);
 					break;
 				case '\'':
-					spaced += sourceCode.charAt(++i);
-					spaced += sourceCode.charAt(++i);
+					for (int n = 0; n < 2 && i + 1 < sourceCode.length(); n++)
+						spaced += sourceCode.charAt(++i);
 					break;
 				case '"':
 					while (i + 1 < sourceCode.length() && sourceCode.charAt(i + 1) != '"') {
 						spaced += sourceCode.charAt(++i);
 					}
-					spaced += sourceCode.charAt(++i);
+					if (i + 1 < sourceCode.length())
+						spaced += sourceCode.charAt(++i);
 					break;
 				}
 				spaced += " ";
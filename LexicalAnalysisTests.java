@@ -0,0 +1,283 @@
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Checks the single-pass scanner against the legacy split-based lexer and
+// covers the cases where the two intentionally differ.
+public class LexicalAnalysisTests {
+
+	private static final String PREFIX = "public class Test { public static void main(String[] args){ ";
+	private static final String SUFFIX = " }}";
+
+	private static final List<String> BODIES = Arrays.asList("", ";", "int i;", "int i", "int i = 'c';",
+			"boolean b = true;", "int i = 3 + 2 * 5;", "int i = 3 + 2 * * 5;", "int i = 3 2;", "int i =  + / %;",
+			"int _453;", "int 453;", "if (true) {System.out.println(\"true\");} else { System.out.println(\"false\"); }",
+			"if () {;} else { ; }", "if (5) {;} else { ; }", "while (true) { ; }", "while (true)",
+			"for ( ; 5 ;) {; }", "for (int i = 0; i <= 10; i + 1) { x = x % 3 - (y / 2); }",
+			"char c = 'x'; if (a != b) { c = 'y'; } else if (a >= b) { ; } else { ; }", "int x = a < b && c > d;",
+			"boolean b = a == b\n\t&& c != d;", "int 3a;", "int a.b;", "a = !b;", "int \u00e9;");
+
+	private static void assertSameTokens(String source) {
+		List<Token> legacy;
+		try {
+			legacy = LexicalAnalyser.analyseLegacy(source);
+		} catch (LexicalException e) {
+			assertThrows(LexicalException.class, () -> LexicalAnalyser.analyse(source), source);
+			return;
+		}
+		try {
+			assertEquals(legacy, LexicalAnalyser.analyse(source), source);
+		} catch (LexicalException e) {
+			fail(source + ": " + e.getMessage());
+		}
+	}
+
+	@Test
+	public void testMatchesLegacyOnSamplePrograms() {
+		assertSameTokens("");
+		assertSameTokens("public class { }");
+		assertSameTokens("public Test { public static void main(String[] args) {}}");
+		assertSameTokens("public class { public static void main(String args) {} }");
+		for (String body : BODIES)
+			assertSameTokens(PREFIX + body + SUFFIX);
+	}
+
+	@Test
+	public void testKeywordValuesMatchLegacy() throws LexicalException {
+		String source = PREFIX + "char c; boolean b; int i; System.out.println(\"x\");" + SUFFIX;
+		List<Token> tokens = LexicalAnalyser.analyse(source);
+		List<Token> legacy = LexicalAnalyser.analyseLegacy(source);
+		for (int i = 0; i < tokens.size(); i++)
+			assertEquals(legacy.get(i).getValue(), tokens.get(i).getValue());
+	}
+
+	@Test
+	public void testLogicalOrIsTokenised() throws LexicalException {
+		// The legacy split regex treats '|' as a separator and drops the operator
+		List<Token> tokens = LexicalAnalyser.analyse("a || b");
+		assertEquals(3, tokens.size());
+		assertEquals(Token.TokenType.OR, tokens.get(1).getType());
+	}
+
+	@Test
+	public void testStringLiteralKeepsWhitespace() throws LexicalException {
+		List<Token> tokens = LexicalAnalyser.analyse("System.out.println(\"hello, world\");");
+		assertEquals(Token.TokenType.STRINGLIT, tokens.get(3).getType());
+		assertEquals("hello, world", tokens.get(3).getValue().get());
+	}
+
+	@Test
+	public void testAnalyseReturnsMutableList() throws LexicalException {
+		List<Token> tokens = LexicalAnalyser.analyse("int x = 1;");
+		Token first = tokens.get(0);
+		assertSame(first, tokens.get(0));
+		tokens.remove(0);
+		tokens.add(first);
+		assertEquals(Token.TokenType.TYPE, tokens.get(tokens.size() - 1).getType());
+	}
+
+	@Test
+	public void testMalformedLiteralsAtEndOfInput() {
+		assertThrows(LexicalException.class, () -> LexicalAnalyser.analyse("char c = '"));
+		assertThrows(LexicalException.class, () -> LexicalAnalyser.analyse("char c = 'a"));
+		assertThrows(LexicalException.class, () -> LexicalAnalyser.analyse("System.out.println(\"abc"));
+		assertThrows(LexicalException.class, () -> LexicalAnalyser.analyse("a |"));
+	}
+
+	@Test
+	public void testLegacyLexerStopsAtEndOfInput() {
+		for (String source : Arrays.asList("a &", "a =", "a <", "a !", "c = '", "c = 'a", "s = \""))
+			assertSameTokens(source);
+	}
+
+	@Test
+	public void testTolerantModeReportsEveryError() throws LexicalException {
+		String source = "int _453;\nchar c = 'ab;\nint x = a | b;\nSystem.out.println(\"abc";
+		List<LexicalException> errors = new ArrayList<>();
+		TokenBuffer buffer = LexicalAnalyser.tokeniseTolerant(source, errors);
+
+		assertEquals(4, errors.size());
+		assertEquals(Arrays.asList(1, 2, 3, 4), Arrays.asList(errors.get(0).getLine(), errors.get(1).getLine(),
+				errors.get(2).getLine(), errors.get(3).getLine()));
+		List<String> spans = new ArrayList<>();
+		for (int i = 0; i < buffer.size(); i++)
+			if (buffer.type(i) == Token.TokenType.ERROR)
+				spans.add(source.substring(buffer.start(i), buffer.end(i)));
+		assertEquals(Arrays.asList("_", "'ab", "|", "\"abc"), spans);
+
+		// Scanning resumes after each bad lexeme
+		assertEquals(Token.TokenType.NUM, buffer.type(2));
+		assertEquals("453", buffer.get(2).getValue().get());
+
+		TokenStream stream = LexicalAnalyser.streamTolerant(source, errors);
+		for (int i = 0; i < buffer.size(); i++)
+			assertEquals(buffer.type(i), stream.next().getType());
+		assertEquals(Token.TokenType.EOF, stream.next().getType());
+		assertEquals(8, errors.size());
+	}
+
+	@Test
+	public void testTolerantModeAtEndOfInput() throws LexicalException {
+		for (String end : Arrays.asList("'", "|", "&", "!", "\"", "'a", "'\n")) {
+			List<LexicalException> errors = new ArrayList<>();
+			TokenBuffer buffer = LexicalAnalyser.tokeniseTolerant("x = " + end, errors);
+			assertEquals(1, errors.size(), end);
+			assertEquals(Token.TokenType.ERROR, buffer.type(buffer.size() - 1), end);
+			assertThrows(LexicalException.class, () -> LexicalAnalyser.analyse("x = " + end), end);
+		}
+		List<LexicalException> errors = new ArrayList<>();
+		assertEquals(Token.TokenType.ASSIGN, LexicalAnalyser.tokeniseTolerant("x =", errors).type(1));
+		assertTrue(errors.isEmpty());
+	}
+
+	@Test
+	public void testStreamYieldsSameTokensThenEof() throws LexicalException {
+		String source = PREFIX + BODIES.get(18) + SUFFIX;
+		TokenStream stream = LexicalAnalyser.stream(source);
+		for (Token expected : LexicalAnalyser.analyse(source)) {
+			assertEquals(expected, stream.peek());
+			assertEquals(expected, stream.next());
+		}
+		assertEquals(Token.TokenType.EOF, stream.next().getType());
+		assertEquals(Token.TokenType.EOF, stream.peek().getType());
+	}
+
+	@Test
+	public void testParseFromStreamMatchesList() throws LexicalException, SyntaxException {
+		for (String body : Arrays.asList(BODIES.get(12), BODIES.get(18), BODIES.get(19))) {
+			String source = PREFIX + body + SUFFIX;
+			assertEquals(SyntacticAnalyser.parse(LexicalAnalyser.analyse(source)).toString(),
+					SyntacticAnalyser.parse(LexicalAnalyser.stream(source)).toString());
+		}
+	}
+
+	@Test
+	public void testStreamReportsSyntaxErrorBeforeLaterLexicalError() {
+		// The bad identifier is never scanned because parsing stops at the missing class name
+		assertThrows(SyntaxException.class,
+				() -> SyntacticAnalyser.parse(LexicalAnalyser.stream("public class { int _453; }")));
+		assertThrows(LexicalException.class,
+				() -> SyntacticAnalyser.parse(LexicalAnalyser.analyse("public class { int _453; }")));
+	}
+
+	@Test
+	public void testFileAndReaderMatchString(@TempDir Path dir) throws IOException, LexicalException {
+		String source = PREFIX + BODIES.get(19) + SUFFIX;
+		Path file = dir.resolve("Test.java");
+		Files.write(file, source.getBytes(StandardCharsets.US_ASCII));
+		List<Token> expected = LexicalAnalyser.analyse(source);
+		assertEquals(expected, LexicalAnalyser.analyse(file));
+		assertEquals(expected, LexicalAnalyser.analyse(new StringReader(source)));
+	}
+
+	@Test
+	public void testMappedFileWithNonAsciiLiteral(@TempDir Path dir) throws IOException, LexicalException {
+		String source = PREFIX + "char c = '\u00e9'; System.out.println(\"caf\u00e9\");" + SUFFIX;
+		Path file = dir.resolve("Test.java");
+		Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+		assertEquals(LexicalAnalyser.analyse(source), LexicalAnalyser.analyse(file));
+	}
+
+	@Test
+	public void testTokenBufferRecordsSpans() throws LexicalException {
+		String source = "int count = 'c'; System.out.println(\"hi there\");";
+		TokenBuffer buffer = LexicalAnalyser.tokenise(source);
+		assertEquals(14, buffer.size());
+		assertEquals(Token.TokenType.ID, buffer.type(1));
+		assertEquals("count", source.substring(buffer.start(1), buffer.end(1)));
+		assertEquals(Token.TokenType.CHARLIT, buffer.type(4));
+		assertEquals("c", source.substring(buffer.start(4), buffer.end(4)));
+		assertEquals(Token.TokenType.STRINGLIT, buffer.type(10));
+		assertEquals("hi there", buffer.get(10).getValue().get());
+		assertEquals(LexicalAnalyser.analyseLegacy("int count = 'c';"), buffer.asList().subList(0, 7));
+	}
+
+	@Test
+	public void testTokenPositions() throws LexicalException {
+		List<Token> tokens = LexicalAnalyser.analyse("int a;\r\n  a = 'x';\n\n\tb = 2;");
+		assertEquals(1, tokens.get(1).getLine());
+		assertEquals(5, tokens.get(1).getColumn());
+		assertEquals(2, tokens.get(3).getLine());
+		assertEquals(3, tokens.get(3).getColumn());
+		assertEquals(10, tokens.get(3).getOffset());
+		assertEquals(Token.TokenType.CHARLIT, tokens.get(6).getType());
+		assertEquals(2, tokens.get(6).getLine());
+		assertEquals(8, tokens.get(6).getColumn());
+		assertEquals(4, tokens.get(9).getLine());
+		assertEquals(2, tokens.get(9).getColumn());
+		assertEquals(-1, new Token(Token.TokenType.ID, "a").getLine());
+	}
+
+	@Test
+	public void testErrorsReportLineAndColumn() {
+		LexicalException lexical = assertThrows(LexicalException.class,
+				() -> LexicalAnalyser.analyse(PREFIX + "\n  int _453;" + SUFFIX));
+		assertEquals(2, lexical.getLine());
+		assertEquals(7, lexical.getColumn());
+
+		SyntaxException syntax = assertThrows(SyntaxException.class,
+				() -> SyntacticAnalyser.parse(LexicalAnalyser.stream(PREFIX + "\n  int i\n }}")));
+		assertEquals(3, syntax.getLine());
+		assertEquals(2, syntax.getColumn());
+		assertTrue(syntax.getMessage().endsWith("at line 3, column 2"));
+	}
+
+	@Test
+	public void testTreeNodeSpan() throws LexicalException, SyntaxException {
+		String source = PREFIX + "int i = 3 + 2;" + SUFFIX;
+		ParseTree tree = SyntacticAnalyser.parse(LexicalAnalyser.analyse(source));
+		TreeNode stat = tree.getRoot().getChildren().get(13).getChildren().get(0);
+		assertEquals("int i = 3 + 2;", source.substring(stat.getStartOffset(), stat.getEndOffset()));
+		assertEquals(0, tree.getRoot().getStartOffset());
+		assertEquals(source.length(), tree.getRoot().getEndOffset());
+		assertEquals(-1, tree.getRoot().getChildren().get(13).getChildren().get(1).getStartOffset());
+	}
+
+	@Test
+	public void testLexemesAreSharedThroughPool() throws LexicalException {
+		LexemePool pool = new LexemePool(64);
+		List<Token> first = LexicalAnalyser.tokenise("count = count + 10;", pool).asList();
+		List<Token> second = LexicalAnalyser.tokenise("int count = 10;", pool).asList();
+		assertSame(first.get(0).getValue().get(), first.get(2).getValue().get());
+		assertSame(first.get(0).getValue().get(), second.get(1).getValue().get());
+		assertSame(first.get(4).getValue().get(), second.get(3).getValue().get());
+
+		// Without a pool each lexeme is a copy of its own
+		List<Token> unpooled = LexicalAnalyser.tokenise("count = count + 10;", null).asList();
+		assertEquals("count", unpooled.get(0).getValue().get());
+		assertNotSame(unpooled.get(0).getValue().get(), unpooled.get(2).getValue().get());
+		assertEquals(Token.TokenType.ID, LexicalAnalyser.stream("count", null).peek().getType());
+		assertNotSame(LexicalAnalyser.tokenise("count", null).get(0).getValue().get(), first.get(0).getValue().get());
+	}
+
+	@Test
+	public void testPoolIsBounded() {
+		LexemePool pool = new LexemePool(16);
+		assertEquals(16, pool.capacity());
+		StringBuilder source = new StringBuilder();
+		for (int i = 0; i < 1000; i++)
+			source.append("id").append(i).append(' ');
+		String first = pool.intern(source, 0, 3);
+		assertSame(first, pool.intern(source, 0, 3));
+		for (int i = 0, start = 0; i < 1000; i++) {
+			int end = source.indexOf(" ", start);
+			assertEquals(source.substring(start, end), pool.intern(source, start, end));
+			assertTrue(pool.size() <= pool.capacity());
+			start = end + 1;
+		}
+		assertEquals(pool.capacity(), pool.size());
+		// A thousand other lexemes have passed through its slots since
+		String again = pool.intern(source, 0, 3);
+		assertEquals(first, again);
+		assertNotSame(first, again);
+	}
+
+}
@@ -0,0 +1,327 @@
+import java.util.List;
+
+// Single-pass scanner over the source text. Walks the input once by index and
+// emits tokens directly, replacing the spaced-string-and-split pipeline that
+// LexicalAnalyser.analyseLegacy still uses for differential comparison.
+class LexicalScanner {
+
+	// Bumped by any change to the tokens or errors produced for some input, so
+	// results stored by DiskParseCache under an older lexer are not served
+	static final int VERSION = 1;
+
+	private final SourceText text;
+	private final CharSequence source;
+	private final int length;
+	private int pos;
+
+	// Filled in as line breaks are passed; null when positions are not tracked
+	private final LineMap lines;
+
+	// In tolerant mode a bad lexeme is reported here and scanned as an ERROR
+	// token; null when the first one throws
+	private final List<LexicalException> errors;
+
+	// Span of the token most recently returned by advance()
+	private int tokenStart;
+	private int tokenEnd;
+
+	// A string or character literal produces three tokens from one lexeme, so the
+	// literal and its closing quote are queued here until the next calls
+	private Token.TokenType pendingQuote;
+	private int pendingStart = -1;
+	private int pendingEnd;
+
+	public LexicalScanner(CharSequence source, LexemePool pool) {
+		this(source, pool, true);
+	}
+
+	LexicalScanner(CharSequence source, LexemePool pool, boolean trackLines) {
+		this(source, pool, trackLines, null);
+	}
+
+	LexicalScanner(CharSequence source, LexemePool pool, List<LexicalException> errors) {
+		this(source, pool, true, errors);
+	}
+
+	private LexicalScanner(CharSequence source, LexemePool pool, boolean trackLines, List<LexicalException> errors) {
+		this.source = source;
+		this.length = source.length();
+		this.pos = 0;
+		this.lines = trackLines ? new LineMap() : null;
+		this.errors = errors;
+		this.text = new SourceText(source, lines, pool);
+	}
+
+	// Scans only [from, to) of text whose line map is already complete, as when
+	// relexing one region of an edited file
+	LexicalScanner(SourceText text, int from, int to) {
+		this.source = text.getChars();
+		this.length = to;
+		this.pos = from;
+		this.lines = null;
+		this.errors = null;
+		this.text = text;
+	}
+
+	public SourceText getSource() {
+		return this.text;
+	}
+
+	// Positioned at the end of the input
+	public Token eof() {
+		return new Token(Token.TokenType.EOF, text, length, length);
+	}
+
+	// Returns the next token, or null once the input is exhausted
+	public Token next() throws LexicalException {
+		Token.TokenType type = advance();
+		if (type == null)
+			return null;
+		return new Token(type, text, tokenStart, tokenEnd);
+	}
+
+	// Appends every remaining token to the buffer without creating Token objects
+	public void scanInto(TokenBuffer buffer) throws LexicalException {
+		for (Token.TokenType type = advance(); type != null; type = advance())
+			buffer.add(type, tokenStart, tokenEnd);
+	}
+
+	// Scans the next token and records its span, returning null at end of input
+	private Token.TokenType advance() throws LexicalException {
+		if (pendingQuote != null) {
+			Token.TokenType quote = pendingQuote;
+			if (pendingStart >= 0) {
+				tokenStart = pendingStart;
+				tokenEnd = pendingEnd;
+				pendingStart = -1;
+				return quote == Token.TokenType.DQUOTE ? Token.TokenType.STRINGLIT : Token.TokenType.CHARLIT;
+			}
+			pendingQuote = null;
+			return span(pendingEnd, quote);
+		}
+
+		for (char c; pos < length && isWhitespace(c = source.charAt(pos)); pos++)
+			if (lines != null && isLineBreak(c, pos))
+				lines.add(pos + 1);
+		if (pos >= length)
+			return null;
+
+		int start = pos;
+		char c = source.charAt(pos++);
+		if (isWordChar(c))
+			return word(start);
+
+		switch (c) {
+		case '{':
+			return span(start, Token.TokenType.LBRACE);
+		case '}':
+			return span(start, Token.TokenType.RBRACE);
+		case '(':
+			return span(start, Token.TokenType.LPAREN);
+		case ')':
+			return span(start, Token.TokenType.RPAREN);
+		case '+':
+			return span(start, Token.TokenType.PLUS);
+		case '-':
+			return span(start, Token.TokenType.MINUS);
+		case '*':
+			return span(start, Token.TokenType.TIMES);
+		case '/':
+			return span(start, Token.TokenType.DIVIDE);
+		case '%':
+			return span(start, Token.TokenType.MOD);
+		case ';':
+			return span(start, Token.TokenType.SEMICOLON);
+		case '|':
+			if (accept('|'))
+				return span(start, Token.TokenType.OR);
+			break;
+		case '&':
+			if (accept('&'))
+				return span(start, Token.TokenType.AND);
+			break;
+		case '=':
+			return span(start, accept('=') ? Token.TokenType.EQUAL : Token.TokenType.ASSIGN);
+		case '!':
+			if (accept('='))
+				return span(start, Token.TokenType.NEQUAL);
+			break;
+		case '<':
+			return span(start, accept('=') ? Token.TokenType.LE : Token.TokenType.LT);
+		case '>':
+			return span(start, accept('=') ? Token.TokenType.GE : Token.TokenType.GT);
+		case '"':
+			return stringLiteral(start);
+		case '\'':
+			return charLiteral(start);
+		}
+		return fail("Unrecognised token: " + c, start);
+	}
+
+	private Token.TokenType span(int start, Token.TokenType type) {
+		tokenStart = start;
+		tokenEnd = pos;
+		return type;
+	}
+
+	private boolean accept(char expected) {
+		if (pos < length && source.charAt(pos) == expected) {
+			pos++;
+			return true;
+		}
+		return false;
+	}
+
+	private Token.TokenType stringLiteral(int start) throws LexicalException {
+		int close = pos;
+		for (char c; close < length && (c = source.charAt(close)) != '"'; close++)
+			if (lines != null && isLineBreak(c, close))
+				lines.add(close + 1);
+		if (close >= length) {
+			pos = length;
+			return fail("Malformed string literal: " + text(start, length), start);
+		}
+		return literal(start, close, Token.TokenType.DQUOTE);
+	}
+
+	private Token.TokenType charLiteral(int start) throws LexicalException {
+		if (pos + 1 >= length || source.charAt(pos + 1) != '\'' || isLineBreak(source.charAt(pos), pos)) {
+			int end = Math.min(start + 3, length);
+			String message = "Malformed character literal: " + text(start, end);
+			// The bad lexeme stops short of a line break so the line map still sees it
+			while (pos < end && !isLineBreak(source.charAt(pos), pos))
+				pos++;
+			return fail(message, start);
+		}
+		return literal(start, pos + 1, Token.TokenType.SQUOTE);
+	}
+
+	// Emits the opening quote and queues the literal body and the closing quote
+	private Token.TokenType literal(int start, int close, Token.TokenType quote) {
+		pendingQuote = quote;
+		pendingStart = pos;
+		pendingEnd = close;
+		pos = close + 1;
+		tokenStart = start;
+		tokenEnd = start + 1;
+		return quote;
+	}
+
+	private Token.TokenType word(int start) throws LexicalException {
+		while (pos < length && isWordChar(source.charAt(pos)))
+			pos++;
+
+		Token.TokenType keyword = keywordOf(start, pos - start);
+		if (keyword != null)
+			return span(start, keyword);
+
+		boolean digits = true;
+		boolean alphanumeric = true;
+		for (int i = start; i < pos; i++) {
+			char c = source.charAt(i);
+			boolean digit = c >= '0' && c <= '9';
+			digits &= digit;
+			alphanumeric &= digit || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+		}
+		if (digits)
+			return span(start, Token.TokenType.NUM);
+		if (alphanumeric && Character.isAlphabetic(source.charAt(start)))
+			return span(start, Token.TokenType.ID);
+		return fail("Unrecognised token: " + text(start, pos), start);
+	}
+
+	// Keyword recognition dispatches on length and first character, then
+	// compares in place so that no substring is created for reserved words
+	private Token.TokenType keywordOf(int start, int len) {
+		switch (len) {
+		case 2:
+			return is(start, "if") ? Token.TokenType.IF : null;
+		case 3:
+			if (is(start, "int"))
+				return Token.TokenType.TYPE;
+			return is(start, "for") ? Token.TokenType.FOR : null;
+		case 4:
+			switch (source.charAt(start)) {
+			case 'm':
+				return is(start, "main") ? Token.TokenType.MAIN : null;
+			case 'v':
+				return is(start, "void") ? Token.TokenType.VOID : null;
+			case 'a':
+				return is(start, "args") ? Token.TokenType.ARGS : null;
+			case 'c':
+				return is(start, "char") ? Token.TokenType.TYPE : null;
+			case 'e':
+				return is(start, "else") ? Token.TokenType.ELSE : null;
+			case 't':
+				return is(start, "true") ? Token.TokenType.TRUE : null;
+			}
+			return null;
+		case 5:
+			switch (source.charAt(start)) {
+			case 'c':
+				return is(start, "class") ? Token.TokenType.CLASS : null;
+			case 'w':
+				return is(start, "while") ? Token.TokenType.WHILE : null;
+			case 'f':
+				return is(start, "false") ? Token.TokenType.FALSE : null;
+			}
+			return null;
+		case 6:
+			switch (source.charAt(start)) {
+			case 'p':
+				return is(start, "public") ? Token.TokenType.PUBLIC : null;
+			case 's':
+				return is(start, "static") ? Token.TokenType.STATIC : null;
+			}
+			return null;
+		case 7:
+			return is(start, "boolean") ? Token.TokenType.TYPE : null;
+		case 8:
+			return is(start, "String[]") ? Token.TokenType.STRINGARR : null;
+		case 18:
+			return is(start, "System.out.println") ? Token.TokenType.PRINT : null;
+		}
+		return null;
+	}
+
+	private boolean is(int start, String keyword) {
+		for (int i = 0; i < keyword.length(); i++)
+			if (source.charAt(start + i) != keyword.charAt(i))
+				return false;
+		return true;
+	}
+
+	private String text(int start, int end) {
+		return source.subSequence(start, end).toString();
+	}
+
+	// Throws, or in tolerant mode records the error and returns the span from
+	// start to the current position as an ERROR token
+	private Token.TokenType fail(String message, int start) throws LexicalException {
+		if (errors == null)
+			throw error(message, start);
+		errors.add(error(message, start));
+		return span(start, Token.TokenType.ERROR);
+	}
+
+	private LexicalException error(String message, int offset) {
+		if (lines == null)
+			return new LexicalException(message);
+		return new LexicalException(message, lines.line(offset), lines.column(offset));
+	}
+
+	private static boolean isWordChar(char c) {
+		return Character.isAlphabetic(c) || Character.isDigit(c) || c == '[' || c == ']' || c == '.';
+	}
+
+	// Matches the \s class the legacy lexer split on
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u000B';
+	}
+
+	// A "\r\n" pair counts once, at its '\n'
+	private boolean isLineBreak(char c, int at) {
+		return c == '\n' || (c == '\r' && (at + 1 >= length || source.charAt(at + 1) != '\n'));
+	}
+
+}
@@ -0,0 +1,76 @@
+import java.util.Arrays;
+
+// Offsets at which each line of the source starts, recorded by the scanner as
+// it passes line breaks. Line and column numbers are derived on demand with a
+// binary search, so tokens only need to carry their start offset.
+public class LineMap {
+
+	private int[] starts;
+	private int count;
+
+	public LineMap() {
+		this.starts = new int[64];
+		this.count = 1; // line 1 starts at offset 0
+	}
+
+	// Rough heap held by the map, for caches that weigh their entries
+	long retainedBytes() {
+		return 32 + 16 + 4L * starts.length;
+	}
+
+	// The line map of the text after an edit: line starts before the edit are
+	// kept, the edited span (and the character before it, whose "\r\n" pairing
+	// may have changed) is rescanned, and the starts after it are shifted
+	LineMap edit(TextEdit edit, CharSequence edited) {
+		int from = edit.getOffset();
+		int removedEnd = from + edit.getRemovedLength();
+		int insertedEnd = from + edit.getInsertedText().length();
+		int length = edited.length();
+		LineMap map = new LineMap();
+		map.starts = new int[Math.max(64, count + edit.getInsertedText().length())];
+
+		int i = 1;
+		for (; i < count && starts[i] < from; i++)
+			map.add(starts[i]);
+		for (int at = Math.max(0, from - 1); at < insertedEnd; at++) {
+			char c = edited.charAt(at);
+			if (c == '\n' || (c == '\r' && (at + 1 >= length || edited.charAt(at + 1) != '\n')))
+				map.add(at + 1);
+		}
+		while (i < count && starts[i] <= removedEnd)
+			i++;
+		for (; i < count; i++)
+			map.add(starts[i] + edit.delta());
+		return map;
+	}
+
+	public void add(int lineStart) {
+		if (count == starts.length)
+			starts = Arrays.copyOf(starts, count * 2);
+		starts[count++] = lineStart;
+	}
+
+	public int lineCount() {
+		return this.count;
+	}
+
+	// 1-based line containing the offset
+	public int line(int offset) {
+		int low = 0;
+		int high = count - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (starts[mid] <= offset)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+		return low + 1;
+	}
+
+	// 1-based column of the offset within its line
+	public int column(int offset) {
+		return offset - starts[line(offset) - 1] + 1;
+	}
+
+}
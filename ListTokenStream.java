@@ -0,0 +1,27 @@
+import java.util.List;
+
+class ListTokenStream implements TokenStream {
+
+	private final List<Token> tokens;
+	private final Token eof = new Token(Token.TokenType.EOF);
+	private int index;
+
+	public ListTokenStream(List<Token> tokens) {
+		this.tokens = tokens;
+		this.index = 0;
+	}
+
+	@Override
+	public Token peek() {
+		return index < tokens.size() ? tokens.get(index) : eof;
+	}
+
+	@Override
+	public Token next() {
+		Token token = peek();
+		if (token != eof)
+			index++;
+		return token;
+	}
+
+}
@@ -0,0 +1,279 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Optional;
+
+// Reads the format written by ParseTreeWriter in place. Nothing is decoded up
+// front except the string table's offsets; a node is identified by the byte
+// position of its record and its fields are read when asked for. Each
+// non-terminal records the byte length of its children, so moving to the next
+// sibling skips the subtree rather than walking it.
+public final class MappedParseTree {
+
+	private static final TreeNode.Label[] LABELS = TreeNode.Label.values();
+	private static final Token.TokenType[] TYPES = Token.TokenType.values();
+
+	private final ByteBuffer buffer;
+	private final int[] strings;
+	private final int size;
+	private final int root;
+
+	private MappedParseTree(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		int at = 0;
+		for (byte b : ParseTreeWriter.MAGIC)
+			if (buffer.limit() <= at || buffer.get(at++) != b)
+				throw new IOException("Not a parse tree file");
+		int version = buffer.get(at++);
+		if (version != ParseTreeWriter.VERSION)
+			throw new IOException("Unsupported parse tree format version " + version);
+		byte[] fingerprint = new byte[ParsingTableSnapshot.FINGERPRINT.length()];
+		for (int i = 0; i < fingerprint.length; i++)
+			fingerprint[i] = buffer.get(at++);
+		String written = new String(fingerprint, StandardCharsets.US_ASCII);
+		if (!written.equals(ParsingTableSnapshot.FINGERPRINT))
+			throw new IOException("Parse tree was written for grammar " + written + ", not "
+					+ ParsingTableSnapshot.FINGERPRINT);
+
+		this.strings = new int[varint(at)];
+		at = skipVarint(at);
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = at;
+			at = skipVarint(at) + varint(at);
+		}
+		this.size = varint(at);
+		this.root = size > 0 ? skipVarint(at) : -1;
+	}
+
+	public static MappedParseTree open(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return new MappedParseTree(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	public static MappedParseTree wrap(byte[] bytes) throws IOException {
+		return new MappedParseTree(ByteBuffer.wrap(bytes));
+	}
+
+	// A tree stored in part of a larger mapping, such as a DiskParseCache segment
+	static MappedParseTree wrap(ByteBuffer buffer) throws IOException {
+		return new MappedParseTree(buffer);
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	// Position of the root's record, or -1 for an empty tree
+	public int root() {
+		return this.root;
+	}
+
+	public TreeNode.Label label(int node) {
+		return LABELS[buffer.get(node)];
+	}
+
+	public int childCount(int node) {
+		return isLeaf(node) ? 0 : varint(node + 1);
+	}
+
+	// Position of the first child's record, or -1 for a leaf
+	public int firstChild(int node) {
+		if (isLeaf(node) || varint(node + 1) == 0)
+			return -1;
+		return skipVarint(skipVarint(node + 1));
+	}
+
+	// Position just past the node's whole subtree: its next sibling, if it has one
+	public int next(int node) {
+		TreeNode.Label label = label(node);
+		if (label == TreeNode.Label.epsilon)
+			return node + 1;
+		if (label == TreeNode.Label.terminal)
+			return skipVarint(node + 2);
+		int childBytes = skipVarint(node + 1);
+		return skipVarint(childBytes) + varint(childBytes);
+	}
+
+	public Optional<Token> token(int node) {
+		if (label(node) != TreeNode.Label.terminal)
+			return Optional.empty();
+		Token.TokenType type = TYPES[buffer.get(node + 1)];
+		int value = varint(node + 2);
+		return Optional.of(value == 0 ? new Token(type) : new Token(type, string(value - 1)));
+	}
+
+	public String string(int index) {
+		int length = varint(strings[index]);
+		int start = skipVarint(strings[index]);
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++)
+			bytes[i] = buffer.get(start + i);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	// A ParseTree that decodes into TreeNodes on the first getRoot() and until
+	// then renders straight from the bytes
+	public ParseTree asParseTree() {
+		return new LazyParseTree(this);
+	}
+
+	// Writes the same text as ParseTree.render. Nodes are stored in the order
+	// they are rendered, so it is one pass counting down each open node's
+	// remaining children for its depth.
+	void render(Appendable out) throws IOException {
+		if (root < 0) {
+			out.append("EMPTY TREE");
+			return;
+		}
+		int[] remaining = new int[64];
+		int depth = 0;
+		StringBuilder bars = new StringBuilder();
+		int node = root;
+		for (int i = 0; i < size; i++) {
+			if (depth > 0) {
+				while (bars.length() < 2 * (depth - 1))
+					bars.append("| ");
+				out.append(bars, 0, 2 * (depth - 1)).append("|-");
+				remaining[depth - 1]--;
+			}
+			out.append('[').append(label(node).name()).append(", ");
+			Optional<Token> token = token(node);
+			if (token.isPresent())
+				out.append("Optional[").append(token.get().toString()).append(']');
+			else
+				out.append("Optional.empty");
+			out.append("]\n");
+
+			int children = childCount(node);
+			if (children > 0) {
+				if (depth == remaining.length)
+					remaining = Arrays.copyOf(remaining, depth * 2);
+				remaining[depth++] = children;
+				node = firstChild(node);
+			} else {
+				node = next(node);
+			}
+			while (depth > 0 && remaining[depth - 1] == 0)
+				depth--;
+		}
+	}
+
+	// Decodes the whole tree into TreeNodes in one sequential pass
+	public ParseTree toParseTree() {
+		if (root < 0)
+			return new ParseTree();
+		TreeNode[] open = new TreeNode[64];
+		int[] remaining = new int[64];
+		int depth = 0;
+		String[] values = new String[strings.length];
+		TreeNode rootNode = null;
+		int node = root;
+		for (int i = 0; i < size; i++) {
+			TreeNode parent = depth > 0 ? open[depth - 1] : null;
+			TreeNode.Label label = label(node);
+			TreeNode current;
+			if (label == TreeNode.Label.terminal) {
+				// Each string is decoded once and shared by every token that uses it
+				Token.TokenType type = TYPES[buffer.get(node + 1)];
+				int value = varint(node + 2) - 1;
+				if (value >= 0 && values[value] == null)
+					values[value] = string(value);
+				current = new TreeNode(label, value < 0 ? new Token(type) : new Token(type, values[value]), parent);
+			} else {
+				current = new TreeNode(label, parent);
+			}
+			if (parent == null)
+				rootNode = current;
+			else
+				parent.addChild(current);
+			if (depth > 0)
+				remaining[depth - 1]--;
+
+			int children = childCount(node);
+			if (children > 0) {
+				if (depth == open.length) {
+					open = Arrays.copyOf(open, depth * 2);
+					remaining = Arrays.copyOf(remaining, depth * 2);
+				}
+				open[depth] = current;
+				remaining[depth++] = children;
+				node = firstChild(node);
+			} else {
+				node = next(node);
+			}
+			while (depth > 0 && remaining[depth - 1] == 0)
+				depth--;
+		}
+		return new ParseTree(rootNode);
+	}
+
+	private static final class LazyParseTree extends ParseTree {
+
+		private final MappedParseTree mapped;
+		private TreeNode root;
+		// Written after root, so a thread that sees it set sees root too
+		private volatile boolean decoded;
+
+		LazyParseTree(MappedParseTree mapped) {
+			this.mapped = mapped;
+		}
+
+		@Override
+		public TreeNode getRoot() {
+			if (!decoded) {
+				synchronized (this) {
+					if (!decoded) {
+						root = mapped.toParseTree().getRoot();
+						decoded = true;
+					}
+				}
+			}
+			return root;
+		}
+
+		@Override
+		public synchronized void setRoot(TreeNode root) {
+			this.root = root;
+			decoded = true;
+		}
+
+		// Once decoded the TreeNodes may have been changed, so they are rendered
+		@Override
+		public void render(Appendable out) throws IOException {
+			if (decoded)
+				super.render(out);
+			else
+				mapped.render(out);
+		}
+
+	}
+
+	private boolean isLeaf(int node) {
+		TreeNode.Label label = label(node);
+		return label == TreeNode.Label.terminal || label == TreeNode.Label.epsilon;
+	}
+
+	private int varint(int at) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get(at++);
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+	private int skipVarint(int at) {
+		while (buffer.get(at) < 0)
+			at++;
+		return at + 1;
+	}
+
+}
@@ -0,0 +1,88 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Read-only view of an ASCII file mapped into memory, one byte per char. The
+// text is never copied onto the heap; only the lexemes asked for are.
+final class MappedSource implements CharSequence {
+
+	private final ByteBuffer bytes;
+
+	private MappedSource(ByteBuffer bytes) {
+		this.bytes = bytes;
+	}
+
+	// Maps a UTF-8 source file. Pure ASCII files are read in place; any other
+	// file is decoded once into an off-heap buffer so offsets stay in chars.
+	public static CharSequence open(Path path) throws IOException {
+		MappedByteBuffer mapped;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE)
+				throw new IOException("Source file too large to map: " + path);
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+		if (isAscii(mapped))
+			return new MappedSource(mapped);
+		// Two bytes per decoded char must fit one direct buffer
+		if (mapped.limit() > Integer.MAX_VALUE / 2)
+			throw new IOException("Non-ASCII source file too large to decode: " + path);
+		return decode(mapped);
+	}
+
+	private static boolean isAscii(ByteBuffer bytes) {
+		int limit = bytes.limit();
+		int i = 0;
+		for (; i + 8 <= limit; i += 8)
+			if ((bytes.getLong(i) & 0x8080808080808080L) != 0)
+				return false;
+		for (; i < limit; i++)
+			if (bytes.get(i) < 0)
+				return false;
+		return true;
+	}
+
+	private static CharBuffer decode(ByteBuffer bytes) throws IOException {
+		CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+		// UTF-8 never decodes to more chars than it has bytes
+		CharBuffer chars = ByteBuffer.allocateDirect(Math.multiplyExact(bytes.remaining(), 2)).asCharBuffer();
+		CoderResult result = decoder.decode(bytes.duplicate(), chars, true);
+		if (!result.isUnderflow())
+			result.throwException();
+		result = decoder.flush(chars);
+		if (!result.isUnderflow())
+			result.throwException();
+		chars.flip();
+		return chars;
+	}
+
+	@Override
+	public int length() {
+		return bytes.limit();
+	}
+
+	@Override
+	public char charAt(int index) {
+		return (char) bytes.get(index);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return new MappedSource(bytes.duplicate().position(start).limit(end).slice());
+	}
+
+	@Override
+	public String toString() {
+		byte[] copy = new byte[bytes.limit()];
+		bytes.get(0, copy);
+		return new String(copy, StandardCharsets.US_ASCII);
+	}
+
+}
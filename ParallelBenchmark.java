@@ -0,0 +1,23 @@
+import java.util.concurrent.ForkJoinPool;
+
+// Parses one large flat program sequentially and split across fork-join pools
+// of increasing size, from one thread up to twice the processor count.
+public class ParallelBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		String source = Benchmark.program(8 * 1024 * 1024);
+		TokenBuffer tokens = LexicalAnalyser.tokenise(source);
+		int processors = Runtime.getRuntime().availableProcessors();
+		System.out.println(processors + " processors, " + tokens.size() + " tokens");
+
+		Benchmark.run("8MB sequential", source.length(), () -> SyntacticAnalyser.parse(tokens.asList()));
+		for (int threads = 1; threads <= 2 * processors; threads *= 2) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			int chunks = Math.max(2, threads);
+			Benchmark.run("8MB parallel, " + threads + " threads", source.length(),
+					() -> ParallelParser.parse(tokens, pool, chunks));
+			pool.shutdown();
+		}
+	}
+
+}
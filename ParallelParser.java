@@ -0,0 +1,131 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Parses one large program on several threads. main's statement list is cut
+// into chunks at top-level statement boundaries, found by a scan of the token
+// types that tracks brace and parenthesis depth: a statement ends with ';' or
+// with a '}' not followed by else, back at depth zero. Each chunk parses on its
+// own as a statement list ending at EOF, which builds exactly the stat and los
+// nodes the sequential parse would, down to the final los whose epsilon stands
+// in for the rest of the list. Stitching replaces each chunk's final los with
+// the next chunk's first.
+//
+// The class and main header and the closing braces are parsed around an empty
+// statement list, whose los the stitched chain replaces. If the scan finds the
+// braces unbalanced, or any part fails to parse, the whole program is parsed
+// sequentially instead, so errors are reported exactly as parse reports them.
+public final class ParallelParser {
+
+	// Below this many tokens per chunk the hand-off costs more than it saves
+	private static final int MIN_CHUNK_TOKENS = 4096;
+
+	private ParallelParser() {
+	}
+
+	public static ParseTree parse(TokenBuffer tokens, ForkJoinPool pool) throws SyntaxException {
+		return parse(tokens, pool, pool.getParallelism());
+	}
+
+	// Splits into at most the given number of chunks
+	public static ParseTree parse(TokenBuffer tokens, ForkJoinPool pool, int chunks) throws SyntaxException {
+		int header = headerLength();
+		int end = tokens.size() - 2;
+		int count = Math.min(chunks, (end - header) / MIN_CHUNK_TOKENS);
+		if (count < 2)
+			return SyntacticAnalyser.parse(tokens.asList());
+
+		int[] cuts = cuts(tokens, header, end, count);
+		if (cuts == null)
+			return SyntacticAnalyser.parse(tokens.asList());
+
+		List<Callable<TreeNode[]>> tasks = new ArrayList<>();
+		for (int i = 0; i + 1 < cuts.length; i++) {
+			int from = cuts[i];
+			int to = cuts[i + 1];
+			tasks.add(() -> parseChunk(tokens, from, to));
+		}
+
+		List<Token> skeleton = new ArrayList<>(tokens.asList().subList(0, header));
+		skeleton.addAll(tokens.asList().subList(end, tokens.size()));
+		ParseTree tree;
+		List<TreeNode[]> lists = new ArrayList<>();
+		try {
+			List<Future<TreeNode[]>> results = pool.invokeAll(tasks);
+			tree = SyntacticAnalyser.parse(skeleton);
+			for (Future<TreeNode[]> result : results)
+				lists.add(result.get());
+		} catch (SyntaxException | ExecutionException e) {
+			return SyntacticAnalyser.parse(tokens.asList());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return SyntacticAnalyser.parse(tokens.asList());
+		}
+
+		TreeNode root = tree.getRoot();
+		root.getChildren().set(header, lists.get(0)[0]);
+		lists.get(0)[0].setParent(root);
+		for (int i = 0; i + 1 < lists.size(); i++) {
+			TreeNode last = lists.get(i)[1];
+			TreeNode next = lists.get(i + 1)[0];
+			last.getParent().getChildren().set(1, next);
+			next.setParent(last.getParent());
+		}
+		return tree;
+	}
+
+	// Tokens before main's statement list: its position in prog's production
+	private static int headerLength() {
+		int[] rhs = SyntacticAnalyser.table().rhs(
+				SyntacticAnalyser.table().production(ParsingTable.id(TreeNode.Label.prog), Token.TokenType.PUBLIC));
+		for (int i = 0; i < rhs.length; i++)
+			if (rhs[i] == ParsingTable.id(TreeNode.Label.los))
+				return i;
+		throw new IllegalStateException("prog has no statement list");
+	}
+
+	// Chunk boundaries from..to, the first statement boundary past each even
+	// share of the tokens; null if the braces do not balance
+	private static int[] cuts(TokenBuffer tokens, int from, int to, int count) {
+		int[] cuts = new int[count + 1];
+		cuts[0] = from;
+		int found = 1;
+		int share = (to - from) / count;
+		int depth = 0;
+		for (int i = from; i < to; i++) {
+			Token.TokenType type = tokens.type(i);
+			if (type == Token.TokenType.LBRACE || type == Token.TokenType.LPAREN)
+				depth++;
+			else if ((type == Token.TokenType.RBRACE || type == Token.TokenType.RPAREN) && --depth < 0)
+				return null;
+			boolean boundary = depth == 0 && (type == Token.TokenType.SEMICOLON
+					|| type == Token.TokenType.RBRACE && (i + 1 == to || tokens.type(i + 1) != Token.TokenType.ELSE));
+			if (boundary && found < count && i + 1 - from >= found * share)
+				cuts[found++] = i + 1;
+		}
+		if (depth != 0)
+			return null;
+		// A cut at the very end would leave the last chunk empty
+		if (cuts[found - 1] == to)
+			found--;
+		cuts[found] = to;
+		return Arrays.copyOf(cuts, found + 1);
+	}
+
+	// A chunk's statement list and the empty los at the end of its chain, which
+	// is found here so the walk runs on the worker thread
+	private static TreeNode[] parseChunk(TokenBuffer tokens, int from, int to) throws SyntaxException, LexicalException {
+		ParseTreeBuilder builder = new ParseTreeBuilder();
+		SyntacticAnalyser.parse(TokenStream.of(tokens.asList().subList(from, to)), builder, TreeNode.Label.los);
+		TreeNode list = builder.getTree().getRoot();
+		TreeNode last = list;
+		while (last.getChildren().get(0).getLabel() == TreeNode.Label.stat)
+			last = last.getChildren().get(1);
+		return new TreeNode[] { list, last };
+	}
+
+}
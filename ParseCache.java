@@ -0,0 +1,149 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+// Caches parse trees by a hash of their source text, so a source seen before is
+// neither lexed nor parsed again. Each entry keeps its text, and a hit is only
+// taken when the text matches, so a hash collision costs a parse rather than
+// returning another source's tree. Trees are CompactParseTrees shared between
+// every caller that asks for the same source: their arena API is read-only and
+// getRoot() builds one read-only TreeNode graph, the first time any caller
+// asks, which they all then share.
+//
+// Entries are weighed by the heap they hold when cached, the tree, its tokens
+// and a copy of the text, which leaves out a TreeNode graph built later; the
+// least recently used are evicted once the total passes maxBytes. A source
+// whose entry alone would weigh more is parsed but not cached. With cacheFailures set, a source that fails to lex or parse is
+// remembered too and its exception thrown again on each later request.
+//
+// Lookups and updates take the cache's lock, but lexing and parsing happen
+// outside it, so concurrent misses run in parallel. Two threads missing on
+// the same source both parse it and the later one's entry is kept.
+public final class ParseCache {
+
+	// Map node, key and entry objects, per entry
+	private static final long ENTRY_OVERHEAD = 160;
+
+	private final long maxBytes;
+	private final boolean cacheFailures;
+	private final LinkedHashMap<SourceHash, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long bytes;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	public ParseCache(long maxBytes, boolean cacheFailures) {
+		if (maxBytes < 0)
+			throw new IllegalArgumentException("maxBytes must not be negative: " + maxBytes);
+		this.maxBytes = maxBytes;
+		this.cacheFailures = cacheFailures;
+	}
+
+	public CompactParseTree parse(CharSequence source) throws LexicalException, SyntaxException {
+		// A copy, so a caller's mutable text cannot change a cached tree
+		String text = source.toString();
+		SourceHash key = SourceHash.of(text);
+		Entry entry;
+		synchronized (this) {
+			entry = entries.get(key);
+			if (entry != null && !entry.source.equals(text))
+				entry = null;
+			if (entry != null)
+				hits++;
+			else
+				misses++;
+		}
+		if (entry == null) {
+			try {
+				CompactParseTree tree = SyntacticAnalyser.parseCompact(LexicalAnalyser.tokenise(text));
+				tree.share();
+				entry = new Entry(text, tree, null, ENTRY_OVERHEAD + tree.retainedBytes());
+			} catch (LexicalException | SyntaxException e) {
+				if (!cacheFailures)
+					throw e;
+				String message = e.getMessage();
+				entry = new Entry(text, null, e,
+						ENTRY_OVERHEAD + 256 + 56 + text.length() + (message != null ? 2L * message.length() : 0));
+			}
+			put(key, entry);
+		}
+		return entry.get();
+	}
+
+	private synchronized void put(SourceHash key, Entry entry) {
+		if (entry.weight > maxBytes)
+			return;
+		Entry previous = entries.put(key, entry);
+		if (previous != null)
+			bytes -= previous.weight;
+		bytes += entry.weight;
+		for (Iterator<Entry> eldest = entries.values().iterator(); bytes > maxBytes; ) {
+			bytes -= eldest.next().weight;
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+	}
+
+	public synchronized long getHits() {
+		return this.hits;
+	}
+
+	public synchronized long getMisses() {
+		return this.misses;
+	}
+
+	public synchronized long getEvictions() {
+		return this.evictions;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	// Estimated heap held by the cached entries, at most maxBytes
+	public synchronized long getWeight() {
+		return this.bytes;
+	}
+
+	public long getMaxBytes() {
+		return this.maxBytes;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "entries=" + entries.size() + " weight=" + bytes + "/" + maxBytes + " hits=" + hits + " misses="
+				+ misses + " evictions=" + evictions;
+	}
+
+	private static final class Entry {
+
+		// The same String the tree's tokens view, so keeping it costs nothing more
+		private final String source;
+		private final CompactParseTree tree;
+		// The cached failure, thrown again as is: its stack trace is that of the
+		// parse that first hit it
+		private final Exception failure;
+		private final long weight;
+
+		Entry(String source, CompactParseTree tree, Exception failure, long weight) {
+			this.source = source;
+			this.tree = tree;
+			this.failure = failure;
+			this.weight = weight;
+		}
+
+		CompactParseTree get() throws LexicalException, SyntaxException {
+			if (failure instanceof LexicalException)
+				throw (LexicalException) failure;
+			if (failure instanceof SyntaxException)
+				throw (SyntaxException) failure;
+			return tree;
+		}
+
+	}
+
+}
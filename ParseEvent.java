@@ -0,0 +1,44 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+// JFR event for an instrumented parse. The event's own duration covers the
+// parse including any lexing it pulled through a stream.
+@Name("simplejava.Parse")
+@Label("SimpleJava Parse")
+@Category("SimpleJava")
+@Description("One instrumented SyntacticAnalyser.parse")
+final class ParseEvent extends Event {
+
+	@Label("Tokens")
+	long tokens;
+
+	@Label("Table Lookups")
+	long tableLookups;
+
+	@Label("Max Stack Depth")
+	int maxStackDepth;
+
+	@Label("Nodes")
+	long nodes;
+
+	@Label("Lexing Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long lexNanos;
+
+	@Label("Failed")
+	boolean failed;
+
+	void set(ParseStats stats) {
+		tokens = stats.tokens;
+		tableLookups = stats.tableLookups;
+		maxStackDepth = stats.maxStackDepth;
+		nodes = stats.nodes;
+		lexNanos = stats.lexNanos;
+		failed = stats.failed;
+	}
+
+}
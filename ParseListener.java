@@ -0,0 +1,16 @@
+// Receives the parse as a stream of events instead of a ParseTree. Events
+// arrive in the order a depth-first walk of the tree would visit the nodes: a
+// non-terminal is entered, its children follow, then it is exited. An empty
+// production is reported as entering and exiting Label.epsilon.
+public interface ParseListener {
+
+	default void enterNonTerminal(TreeNode.Label label) {
+	}
+
+	default void terminal(Token token) {
+	}
+
+	default void exitNonTerminal(TreeNode.Label label) {
+	}
+
+}
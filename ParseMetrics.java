@@ -0,0 +1,126 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Running totals over every instrumented parse in the process, for exporting
+// to a monitoring system. Counters are LongAdders and histograms count values
+// in power-of-two buckets, so recording from many threads never blocks.
+public final class ParseMetrics {
+
+	private static final ParseMetrics GLOBAL = new ParseMetrics();
+
+	private final LongAdder parses = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	private final LongAdder tokens = new LongAdder();
+	private final LongAdder tableLookups = new LongAdder();
+	private final LongAdder nodes = new LongAdder();
+	private final Histogram lexNanos = new Histogram();
+	private final Histogram parseNanos = new Histogram();
+	private final Histogram stackDepth = new Histogram();
+
+	public static ParseMetrics global() {
+		return GLOBAL;
+	}
+
+	// Takes the numbers of a single parse, not a ParseStats added up over
+	// several. A parse from a token list did no lexing and adds no lex time.
+	public void record(ParseStats stats) {
+		parses.increment();
+		if (stats.failed)
+			failures.increment();
+		tokens.add(stats.tokens);
+		tableLookups.add(stats.tableLookups);
+		nodes.add(stats.nodes);
+		if (stats.lexNanos > 0)
+			lexNanos.add(stats.lexNanos);
+		parseNanos.add(stats.parseNanos);
+		stackDepth.add(stats.maxStackDepth);
+	}
+
+	// One lex done up front by LexicalAnalyser.tokenise
+	void recordLex(long nanos) {
+		lexNanos.add(nanos);
+	}
+
+	public long getParses() {
+		return parses.sum();
+	}
+
+	public long getFailures() {
+		return failures.sum();
+	}
+
+	public long getTokens() {
+		return tokens.sum();
+	}
+
+	public long getTableLookups() {
+		return tableLookups.sum();
+	}
+
+	public long getNodes() {
+		return nodes.sum();
+	}
+
+	public Histogram getLexNanos() {
+		return this.lexNanos;
+	}
+
+	public Histogram getParseNanos() {
+		return this.parseNanos;
+	}
+
+	public Histogram getStackDepth() {
+		return this.stackDepth;
+	}
+
+	@Override
+	public String toString() {
+		return "parses=" + getParses() + " failures=" + getFailures() + " tokens=" + getTokens() + " lookups="
+				+ getTableLookups() + " nodes=" + getNodes() + "\nlex ns " + lexNanos + "\nparse ns " + parseNanos
+				+ "\nstack depth " + stackDepth;
+	}
+
+	// Bucket i counts values whose highest set bit is bit i - 1, with zero in
+	// bucket 0, so a percentile is known to within a factor of two
+	public static final class Histogram {
+
+		private final AtomicLongArray buckets = new AtomicLongArray(65);
+		private final LongAdder count = new LongAdder();
+		private final LongAdder sum = new LongAdder();
+
+		void add(long value) {
+			buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(Math.max(0, value)));
+			count.increment();
+			sum.add(value);
+		}
+
+		public long getCount() {
+			return count.sum();
+		}
+
+		public long getSum() {
+			return sum.sum();
+		}
+
+		// Upper bound of the bucket holding the given fraction (0 to 1) of values
+		public long percentile(double fraction) {
+			long total = getCount();
+			long seen = 0;
+			for (int i = 0; i < buckets.length(); i++) {
+				seen += buckets.get(i);
+				if (seen > 0 && seen >= fraction * total)
+					return i == 0 ? 0 : i >= 63 ? Long.MAX_VALUE : (1L << i) - 1;
+			}
+			return 0;
+		}
+
+		@Override
+		public String toString() {
+			long n = getCount();
+			return "count=" + n + " mean=" + (n == 0 ? 0 : getSum() / n) + " p50<=" + percentile(0.5) + " p99<="
+					+ percentile(0.99) + " max<=" + percentile(1);
+		}
+
+	}
+
+}
@@ -0,0 +1,29 @@
+import java.util.Collections;
+import java.util.List;
+
+// The outcome of SyntacticAnalyser.parseRecovering: a tree that always covers
+// the whole input, with Label.error nodes where the parser had to recover, and
+// the syntax errors found in source order.
+public class ParseResult {
+
+	private final ParseTree tree;
+	private final List<SyntaxException> errors;
+
+	ParseResult(ParseTree tree, List<SyntaxException> errors) {
+		this.tree = tree;
+		this.errors = Collections.unmodifiableList(errors);
+	}
+
+	public ParseTree getTree() {
+		return this.tree;
+	}
+
+	public List<SyntaxException> getErrors() {
+		return this.errors;
+	}
+
+	public boolean hasErrors() {
+		return !errors.isEmpty();
+	}
+
+}
@@ -0,0 +1,76 @@
+// Counters for one lex and parse, filled in by LexicalAnalyser.tokeniseTimed
+// and SyntacticAnalyser.parse when a ParseStats is passed to them; reusing one
+// adds up the calls. Each call also emits a JFR event (simplejava.Lex or
+// simplejava.Parse) when a recording has it enabled, and adds its own numbers
+// to ParseMetrics.global().
+//
+// Nothing is collected unless asked for. Running with -Dsimplejava.stats=true
+// makes the plain parse(TokenStream) collect too, so a long-running process
+// can be observed through ParseMetrics and JFR without code changes; the flag
+// is a constant, so when it is off the check compiles away.
+public final class ParseStats {
+
+	static final boolean ENABLED = Boolean.getBoolean("simplejava.stats");
+
+	long tokens;
+	long tableLookups;
+	int maxStackDepth;
+	long nodes;
+	long lexNanos;
+	long parseNanos;
+	boolean failed;
+
+	// Tokens the parser read, including the one it stopped on: EOF when it
+	// succeeds, the unexpected token on a syntax error
+	public long getTokens() {
+		return this.tokens;
+	}
+
+	public long getTableLookups() {
+		return this.tableLookups;
+	}
+
+	// Deepest the parser's symbol stack grew, in entries
+	public int getMaxStackDepth() {
+		return this.maxStackDepth;
+	}
+
+	// Parse tree nodes produced, terminals and epsilons included
+	public long getNodes() {
+		return this.nodes;
+	}
+
+	// Time spent lexing; when lexing is interleaved with parsing through a
+	// stream this is the time spent waiting on the stream
+	public long getLexNanos() {
+		return this.lexNanos;
+	}
+
+	// Time spent parsing, not counting lexing
+	public long getParseNanos() {
+		return this.parseNanos;
+	}
+
+	// Whether the parse ended with a syntax or lexical error
+	public boolean isFailed() {
+		return this.failed;
+	}
+
+	void add(ParseStats stats) {
+		tokens += stats.tokens;
+		tableLookups += stats.tableLookups;
+		maxStackDepth = Math.max(maxStackDepth, stats.maxStackDepth);
+		nodes += stats.nodes;
+		lexNanos += stats.lexNanos;
+		parseNanos += stats.parseNanos;
+		failed |= stats.failed;
+	}
+
+	@Override
+	public String toString() {
+		return "ParseStats[tokens=" + tokens + ", tableLookups=" + tableLookups + ", maxStackDepth=" + maxStackDepth
+				+ ", nodes=" + nodes + ", lexNanos=" + lexNanos + ", parseNanos=" + parseNanos
+				+ (failed ? ", failed" : "") + "]";
+	}
+
+}
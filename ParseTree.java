@@ -1,3 +1,7 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
 public class ParseTree {
 
 	private TreeNode root;
@@ -18,6 +22,70 @@ public class ParseTree {
 		this.root = root;
 	}
 
+	// Writes the same text as toString in one pass, walking the tree with an
+	// explicit stack so deep nesting cannot overflow the thread stack
+	public void render(Appendable out) throws IOException {
+		TreeNode root = getRoot();
+		if (null == root) {
+			out.append("EMPTY TREE");
+			return;
+		}
+
+		TreeNode[] nodes = new TreeNode[64];
+		int[] depths = new int[64];
+		int top = 0;
+		nodes[top] = root;
+		depths[top++] = 0;
+		StringBuilder bars = new StringBuilder();
+
+		while (top > 0) {
+			TreeNode current = nodes[--top];
+			int depth = depths[top];
+			nodes[top] = null;
+
+			if (depth > 0) {
+				while (bars.length() < 2 * (depth - 1))
+					bars.append("| ");
+				out.append(bars, 0, 2 * (depth - 1)).append("|-");
+			}
+			// The same text as current.toString(), without building it
+			out.append('[').append(current.getLabel().name()).append(", ");
+			if (current.getToken().isPresent())
+				out.append("Optional[").append(current.getToken().get().toString()).append(']');
+			else
+				out.append("Optional.empty");
+			out.append("]\n");
+
+			List<TreeNode> children = current.getChildren();
+			if (top + children.size() > nodes.length) {
+				nodes = Arrays.copyOf(nodes, Math.max(nodes.length * 2, top + children.size()));
+				depths = Arrays.copyOf(depths, nodes.length);
+			}
+			for (int i = children.size() - 1; i >= 0; i--) {
+				nodes[top] = children.get(i);
+				depths[top++] = depth + 1;
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder s = new StringBuilder();
+		try {
+			render(s);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return s.toString();
+	}
+
+	// The original recursive rendering, kept to check render against
+	String toStringLegacy() {
+		if (null == getRoot())
+			return "EMPTY TREE";
+		return stringify(getRoot(), 0);
+	}
+
 	private String spaces(int num) {
 		String s = "";
 
@@ -42,11 +110,4 @@ public class ParseTree {
 		return s;
 
 	}
-
-	@Override
-	public String toString() {
-		if (null == root)
-			return "EMPTY TREE";
-		return stringify(root, 0);
-	}
 }
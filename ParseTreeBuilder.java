@@ -0,0 +1,32 @@
+// The listener behind SyntacticAnalyser.parse: builds the TreeNode graph from
+// the parse events.
+public class ParseTreeBuilder implements ParseListener {
+
+	private TreeNode root;
+	private TreeNode current;
+
+	@Override
+	public void enterNonTerminal(TreeNode.Label label) {
+		TreeNode node = new TreeNode(label, current);
+		if (current == null)
+			root = node;
+		else
+			current.addChild(node);
+		current = node;
+	}
+
+	@Override
+	public void terminal(Token token) {
+		current.addChild(new TreeNode(TreeNode.Label.terminal, token, current));
+	}
+
+	@Override
+	public void exitNonTerminal(TreeNode.Label label) {
+		current = current.getParent();
+	}
+
+	public ParseTree getTree() {
+		return new ParseTree(root);
+	}
+
+}
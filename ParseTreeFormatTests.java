@@ -0,0 +1,168 @@
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Round trips parse trees through ParseTreeWriter and MappedParseTree.
+public class ParseTreeFormatTests {
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		for (String source : ParserTests.PROGRAMS) {
+			ParseTree tree;
+			try {
+				tree = SyntacticAnalyser.parse(LexicalAnalyser.stream(source));
+			} catch (SyntaxException e) {
+				continue;
+			}
+			MappedParseTree read = MappedParseTree.wrap(ParseTreeWriter.toBytes(tree));
+			assertEquals(tree.toString(), read.toParseTree().toString(), source);
+			assertEquals(tree.toString(), read.asParseTree().toString(), source);
+		}
+		MappedParseTree empty = MappedParseTree.wrap(ParseTreeWriter.toBytes(new ParseTree()));
+		assertEquals("EMPTY TREE", empty.toParseTree().toString());
+		assertEquals("EMPTY TREE", empty.asParseTree().toString());
+		assertNull(empty.asParseTree().getRoot());
+	}
+
+	@Test
+	public void testMappedFileNavigation(@TempDir Path dir) throws Exception {
+		ParseTree tree = SyntacticAnalyser.parse(LexicalAnalyser.stream(
+				"public class Test { public static void main(String[] args){ x = 1; ; }}"));
+		Path file = dir.resolve("tree.bin");
+		ParseTreeWriter.write(tree, file);
+		MappedParseTree read = MappedParseTree.open(file);
+
+		assertEquals(tree.toString(), read.toParseTree().toString());
+		int root = read.root();
+		assertEquals(TreeNode.Label.prog, read.label(root));
+		assertEquals(16, read.childCount(root));
+
+		// Step over the first 13 terminals to reach the statement list
+		int child = read.firstChild(root);
+		assertEquals(Token.TokenType.PUBLIC, read.token(child).get().getType());
+		for (int i = 0; i < 13; i++)
+			child = read.next(child);
+		assertEquals(TreeNode.Label.los, read.label(child));
+		assertEquals(2, read.childCount(child));
+
+		// Skipping the whole statement list lands on the closing braces
+		int brace = read.next(child);
+		assertEquals(Token.TokenType.RBRACE, read.token(brace).get().getType());
+		assertEquals("}", read.token(brace).get().getValue().get());
+		assertEquals(-1, read.firstChild(brace));
+	}
+
+	@Test
+	public void testRejectsOtherFiles() throws Exception {
+		byte[] bytes = ParseTreeWriter.toBytes(SyntacticAnalyser.parse(LexicalAnalyser.stream(ParserTests.PROGRAMS.get(0))));
+		byte[] wrongVersion = bytes.clone();
+		wrongVersion[4]++;
+		byte[] wrongGrammar = bytes.clone();
+		wrongGrammar[5] ^= 1;
+		assertThrows(IOException.class, () -> MappedParseTree.wrap(new byte[] { 'n', 'o' }));
+		assertThrows(IOException.class, () -> MappedParseTree.wrap(wrongVersion));
+		assertThrows(IOException.class, () -> MappedParseTree.wrap(wrongGrammar));
+	}
+
+	@Test
+	public void testDiskCacheSurvivesRestart(@TempDir Path dir) throws Exception {
+		String source = ParserTests.PROGRAMS.get(0);
+		String tree;
+		try (DiskParseCache cache = DiskParseCache.open(dir, 1 << 20)) {
+			tree = cache.parse(source).toString();
+			assertThrows(SyntaxException.class, () -> cache.parse("public class"));
+			assertEquals(2, cache.getMisses());
+		}
+		try (DiskParseCache cache = DiskParseCache.open(dir, 1 << 20)) {
+			assertEquals(2, cache.size());
+			assertEquals(tree, cache.get(source).toParseTree().toString());
+			// Rendered from the mapping, then decoded once on first use
+			ParseTree lazy = cache.parse(source);
+			assertEquals(tree, lazy.toString());
+			assertEquals(tree, new ParseTree(lazy.getRoot()).toString());
+			assertSame(lazy.getRoot(), lazy.getRoot());
+			SyntaxException e = assertThrows(SyntaxException.class, () -> cache.parse("public class"));
+			assertEquals(assertThrows(SyntaxException.class,
+					() -> SyntacticAnalyser.parse(LexicalAnalyser.stream("public class"))).getMessage(), e.getMessage());
+			assertEquals(3, cache.getHits());
+			assertEquals(0, cache.getMisses());
+		}
+	}
+
+	@Test
+	public void testDiskCacheDropsStaleAndTornSegments(@TempDir Path dir) throws Exception {
+		String source = ParserTests.PROGRAMS.get(0);
+		try (DiskParseCache cache = DiskParseCache.open(dir, 1 << 20)) {
+			cache.parse(source);
+			cache.parse(ParserTests.PROGRAMS.get(1));
+		}
+		Path segment = Files.list(dir).findFirst().get();
+		byte[] bytes = Files.readAllBytes(segment);
+		// A crash mid-write leaves the second record torn
+		Files.write(segment, Arrays.copyOf(bytes, bytes.length - 1));
+		try (DiskParseCache cache = DiskParseCache.open(dir, 1 << 20)) {
+			assertEquals(1, cache.size());
+			assertNotNull(cache.get(source));
+		}
+		// Written by another cache, tree format or lexer version, or for another grammar
+		bytes = Files.readAllBytes(segment);
+		for (int at = DiskParseCache.MAGIC.length; at <= DiskParseCache.MAGIC.length + 3; at++) {
+			byte[] stale = bytes.clone();
+			stale[at] ^= 1;
+			Files.write(segment, stale);
+			try (DiskParseCache cache = DiskParseCache.open(dir, 1 << 20)) {
+				assertEquals(0, cache.size());
+				assertFalse(Files.exists(segment));
+			}
+			for (Path file : Files.list(dir).toArray(Path[]::new))
+				Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testDiskCacheChecksSourceLength(@TempDir Path dir) throws Exception {
+		String source = ParserTests.PROGRAMS.get(0);
+		try (DiskParseCache cache = DiskParseCache.open(dir, 1 << 20)) {
+			cache.parse(source);
+		}
+		// The same digest stored for a source one char longer
+		Path segment = Files.list(dir).findFirst().get();
+		byte[] bytes = Files.readAllBytes(segment);
+		int length = DiskParseCache.SEGMENT_HEADER + DiskParseCache.DIGEST;
+		assertEquals(source.length(), ByteBuffer.wrap(bytes).getInt(length));
+		ByteBuffer.wrap(bytes).putInt(length, source.length() + 1);
+		Files.write(segment, bytes);
+		try (DiskParseCache cache = DiskParseCache.open(dir, 1 << 20)) {
+			assertEquals(1, cache.size());
+			assertNull(cache.get(source));
+			assertEquals(1, cache.getMisses());
+		}
+	}
+
+	@Test
+	public void testDiskCacheCompactionBoundsDiskUse(@TempDir Path dir) throws Exception {
+		long maxBytes = 128 * 1024;
+		try (DiskParseCache cache = DiskParseCache.open(dir, maxBytes)) {
+			String kept = ParserTests.PROGRAMS.get(0);
+			cache.parse(kept);
+			for (int i = 0; i < 1000; i++) {
+				cache.parse("public class Test { public static void main(String[] args) { int x" + i + " = " + i + "; } }");
+				// Reading it keeps it alive through compaction
+				assertNotNull(cache.get(kept));
+				assertTrue(cache.getDiskBytes() <= maxBytes);
+			}
+			assertTrue(cache.getCompactions() > 0);
+			assertTrue(cache.size() < 1001);
+		}
+		long onDisk = 0;
+		for (Path file : Files.list(dir).toArray(Path[]::new))
+			onDisk += Files.size(file);
+		assertTrue(onDisk <= maxBytes);
+	}
+
+}
@@ -0,0 +1,151 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Writes a ParseTree in the binary format read by MappedParseTree:
+//
+//   magic "PTRE", version byte, grammar fingerprint (16 ASCII hex digits)
+//   string count, then each string as a byte length and UTF-8 bytes
+//   node count, then the nodes in pre-order
+//
+// A node is its label ordinal as one byte followed by
+//   terminal:      token type ordinal byte, string index + 1 (0 = no value)
+//   epsilon:       nothing
+//   anything else: child count, byte length of all its children's records
+// All counts, lengths and indexes are unsigned LEB128 varints. The byte length
+// lets a reader step over a subtree without decoding it. Tokens are stored
+// without their source positions.
+public final class ParseTreeWriter {
+
+	static final byte[] MAGIC = { 'P', 'T', 'R', 'E' };
+	static final int VERSION = 1;
+
+	private ParseTreeWriter() {
+	}
+
+	public static void write(ParseTree tree, Path file) throws IOException {
+		Files.write(file, toBytes(tree));
+	}
+
+	public static void write(ParseTree tree, OutputStream out) throws IOException {
+		out.write(toBytes(tree));
+	}
+
+	public static byte[] toBytes(ParseTree tree) {
+		// Number the nodes in pre-order, collecting token values as we go
+		List<TreeNode> nodes = new ArrayList<>();
+		int[] parents = new int[16];
+		int[] values = new int[16];
+		List<String> strings = new ArrayList<>();
+		Map<String, Integer> stringIds = new HashMap<>();
+
+		if (tree.getRoot() != null) {
+			TreeNode[] pending = new TreeNode[64];
+			int[] pendingParents = new int[64];
+			int top = 0;
+			pending[top] = tree.getRoot();
+			pendingParents[top++] = -1;
+			while (top > 0) {
+				TreeNode node = pending[--top];
+				int parent = pendingParents[top];
+				int id = nodes.size();
+				nodes.add(node);
+				if (id == parents.length) {
+					parents = Arrays.copyOf(parents, id * 2);
+					values = Arrays.copyOf(values, id * 2);
+				}
+				parents[id] = parent;
+				values[id] = 0;
+				if (node.getLabel() == TreeNode.Label.terminal) {
+					String value = node.getToken().get().getValue().orElse(null);
+					if (value != null) {
+						Integer index = stringIds.get(value);
+						if (index == null) {
+							index = strings.size();
+							strings.add(value);
+							stringIds.put(value, index);
+						}
+						values[id] = index + 1;
+					}
+				}
+				List<TreeNode> children = node.getChildren();
+				if (top + children.size() > pending.length) {
+					pending = Arrays.copyOf(pending, Math.max(pending.length * 2, top + children.size()));
+					pendingParents = Arrays.copyOf(pendingParents, pending.length);
+				}
+				for (int i = children.size() - 1; i >= 0; i--) {
+					pending[top] = children.get(i);
+					pendingParents[top++] = id;
+				}
+			}
+		}
+
+		// Children follow their parent in pre-order, so walking backwards sees
+		// every child's size before the parent needs it
+		int count = nodes.size();
+		int[] childBytes = new int[count];
+		for (int id = count - 1; id >= 0; id--) {
+			int size = 1 + childBytes[id];
+			TreeNode node = nodes.get(id);
+			if (node.getLabel() == TreeNode.Label.terminal)
+				size += 1 + varintLength(values[id]);
+			else if (node.getLabel() != TreeNode.Label.epsilon)
+				size += varintLength(node.getChildren().size()) + varintLength(childBytes[id]);
+			if (parents[id] >= 0)
+				childBytes[parents[id]] += size;
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(64 + (count > 0 ? childBytes[0] : 0));
+		out.write(MAGIC, 0, MAGIC.length);
+		out.write(VERSION);
+		byte[] fingerprint = ParsingTableSnapshot.FINGERPRINT.getBytes(StandardCharsets.US_ASCII);
+		out.write(fingerprint, 0, fingerprint.length);
+
+		writeVarint(out, strings.size());
+		for (String string : strings) {
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			writeVarint(out, bytes.length);
+			out.write(bytes, 0, bytes.length);
+		}
+
+		writeVarint(out, count);
+		for (int id = 0; id < count; id++) {
+			TreeNode node = nodes.get(id);
+			out.write(node.getLabel().ordinal());
+			if (node.getLabel() == TreeNode.Label.terminal) {
+				out.write(node.getToken().get().getType().ordinal());
+				writeVarint(out, values[id]);
+			} else if (node.getLabel() != TreeNode.Label.epsilon) {
+				writeVarint(out, node.getChildren().size());
+				writeVarint(out, childBytes[id]);
+			}
+		}
+		return out.toByteArray();
+	}
+
+	private static void writeVarint(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	static int varintLength(int value) {
+		int length = 1;
+		while ((value & ~0x7F) != 0) {
+			value >>>= 7;
+			length++;
+		}
+		return length;
+	}
+
+}
@@ -0,0 +1,8 @@
+// Selects how SyntacticAnalyser parses. Both engines are built from the same
+// grammar and produce identical trees and errors.
+public enum ParserEngine {
+	// The table-driven pushdown automaton
+	PUSHDOWN,
+	// The recursive-descent parser generated from SimpleJava.grammar
+	RECURSIVE_DESCENT
+}
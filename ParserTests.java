@@ -0,0 +1,680 @@
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Checks the parser's alternative paths against the original table-driven
+// automaton.
+public class ParserTests {
+
+	private static final String PREFIX = "public class Test { public static void main(String[] args){ ";
+	private static final String SUFFIX = " }}";
+
+	static final List<String> PROGRAMS = new ArrayList<>();
+
+	static {
+		for (String body : Arrays.asList("", ";", "int i;", "int i", "int i = 'c';", "boolean b = true;",
+				"int i = 3 + 2 * 5;", "int i = 3 + 2 * * 5;", "int i = 3 2;", "int i =  + / %;", "int 453;",
+				"if (true) {System.out.println(\"true\");} else { System.out.println(\"false\"); }",
+				"if () {;} else { ; }", "if () {;}  { ; }", "if  {;} else { ; }", "if ()  else { ; }",
+				"if (5) {;} else { ; }", "while (true) { ; }", "while () { ; }", "while a || b { ; }",
+				"while (true)", "for ( ; 5 ;) {; }", "for ( ;  ;) {; }",
+				"for (int i = 0; i <= 10; i + 1) { x = x % 3 - (y / 2); }",
+				"if (a != b || c) { c = 'y'; } else if (a >= b && d) { ; } else { ; }",
+				"System.out.println(a * (b + c) == d);", "x = (a;", "}", "int x = 1; }"))
+			PROGRAMS.add(PREFIX + body + SUFFIX);
+		PROGRAMS.add("");
+		PROGRAMS.add("public class Test { }");
+		PROGRAMS.add("public class Test { public static void main(String[] args) {");
+		PROGRAMS.add(PREFIX + SUFFIX + " extra");
+		PROGRAMS.add(Benchmark.program(20_000));
+	}
+
+	interface Parser {
+		ParseTree parse(List<Token> tokens) throws Exception;
+	}
+
+	// Both parsers must build the same tree, or fail with the same message
+	static void assertSameOutcome(Parser expected, Parser actual) throws LexicalException {
+		for (String source : PROGRAMS) {
+			List<Token> tokens = LexicalAnalyser.analyse(source);
+			String want;
+			try {
+				want = expected.parse(tokens).toString();
+			} catch (Exception e) {
+				want = e.getClass().getName() + ": " + e.getMessage();
+			}
+			String got;
+			try {
+				got = actual.parse(tokens).toString();
+			} catch (Exception e) {
+				got = e.getClass().getName() + ": " + e.getMessage();
+			}
+			assertEquals(want, got, source);
+		}
+	}
+
+	@Test
+	public void testDenseTableMatchesHashMapTable() throws LexicalException {
+		assertSameOutcome(SyntacticAnalyser::parseLegacy, SyntacticAnalyser::parse);
+	}
+
+	@Test
+	public void testGeneratedTableMatchesHandWritten() throws Exception {
+		Grammar grammar = Grammar.load(Paths.get("SimpleJava.grammar"));
+		assertEquals(SyntacticAnalyser.handWrittenTable(), grammar.table());
+		assertEquals(ParsingTable.compile(SyntacticAnalyser.handWrittenTable()), ParsingTable.fromSnapshot());
+	}
+
+	@Test
+	public void testSnapshotIsUpToDate() throws Exception {
+		Grammar grammar = Grammar.load(Paths.get("SimpleJava.grammar"));
+		ParsingTable table = grammar.compile();
+		assertEquals(ParsingTableSnapshot.FINGERPRINT, table.fingerprint());
+		assertEquals(table, ParsingTable.fromSnapshot());
+		String committed = new String(Files.readAllBytes(Paths.get("ParsingTableSnapshot.java")),
+				StandardCharsets.UTF_8);
+		assertEquals(grammar.snapshotSource(), committed);
+	}
+
+	@Test
+	public void testRecursiveDescentMatchesPushdown() throws LexicalException {
+		assertSameOutcome(SyntacticAnalyser::parse,
+				tokens -> SyntacticAnalyser.parse(tokens, ParserEngine.RECURSIVE_DESCENT));
+	}
+
+	@Test
+	public void testRecursiveDescentParserIsUpToDate() throws Exception {
+		Grammar grammar = Grammar.load(Paths.get("SimpleJava.grammar"));
+		String committed = new String(Files.readAllBytes(Paths.get("RecursiveDescentParser.java")),
+				StandardCharsets.UTF_8);
+		assertEquals(grammar.parserSource(), committed);
+	}
+
+	@Test
+	public void testCompactTreeMatchesTreeNodes() throws LexicalException {
+		for (String source : PROGRAMS) {
+			String want;
+			try {
+				want = SyntacticAnalyser.parse(LexicalAnalyser.stream(source)).toString();
+			} catch (SyntaxException e) {
+				want = e.getMessage();
+			}
+			String got;
+			try {
+				got = SyntacticAnalyser.parseCompact(LexicalAnalyser.tokenise(source)).toString();
+			} catch (SyntaxException e) {
+				got = e.getMessage();
+			}
+			assertEquals(want, got, source);
+		}
+	}
+
+	@Test
+	public void testValidateAgreesWithParse() throws LexicalException {
+		for (String source : PROGRAMS) {
+			String want = "valid";
+			try {
+				SyntacticAnalyser.parse(LexicalAnalyser.stream(source));
+			} catch (SyntaxException e) {
+				want = e.getMessage();
+			}
+			String streamed = "valid";
+			try {
+				SyntacticAnalyser.validate(LexicalAnalyser.stream(source));
+			} catch (SyntaxException e) {
+				streamed = e.getMessage();
+			}
+			String buffered = "valid";
+			try {
+				SyntacticAnalyser.validate(LexicalAnalyser.tokenise(source));
+			} catch (SyntaxException e) {
+				buffered = e.getMessage();
+			}
+			assertEquals(want, streamed, source);
+			assertEquals(want, buffered, source);
+		}
+	}
+
+	@Test
+	public void testListenerEvents() throws Exception {
+		String source = PREFIX + "int i = 0; while (i < n) { for (; j < 2;) { ; } i = i + 1; } " + SUFFIX;
+		List<String> identifiers = new ArrayList<>();
+		int[] loops = new int[1];
+		int[] depth = new int[1];
+		SyntacticAnalyser.parse(LexicalAnalyser.stream(source), new ParseListener() {
+			@Override
+			public void enterNonTerminal(TreeNode.Label label) {
+				depth[0]++;
+				if (label == TreeNode.Label.whilestat || label == TreeNode.Label.forstat)
+					loops[0]++;
+			}
+
+			@Override
+			public void terminal(Token token) {
+				if (token.getType() == Token.TokenType.ID)
+					identifiers.add(token.getValue().get());
+			}
+
+			@Override
+			public void exitNonTerminal(TreeNode.Label label) {
+				depth[0]--;
+			}
+		});
+		assertEquals(2, loops[0]);
+		assertEquals(Arrays.asList("Test", "i", "i", "n", "j", "i", "i"), identifiers);
+		assertEquals(0, depth[0]);
+	}
+
+	@Test
+	public void testAstCollapsesConcreteTree() throws Exception {
+		AstBuilder builder = new AstBuilder();
+		SyntacticAnalyser.parse(LexicalAnalyser.stream(PREFIX + "int i = 3 + 2 * 5; char c = 'c'; ; "
+				+ "while (i < 10 && b) { i = i - 1; } for (int j = 0; j <= i; j + 1) { System.out.println(\"j\"); } "
+				+ "if (a == b) { ; } else if (a) { x = (1 + 2) % 3; } else { print = true; }" + SUFFIX), builder);
+		assertEquals("(Program Test (Block (Declare int i (PLUS 3 (TIMES 2 5))) (Declare char c 'c') "
+				+ "(While (AND (LT i 10) b) (Block (Assign i (MINUS i 1)))) "
+				+ "(For (Declare int j 0) (LE j i) (PLUS j 1) (Block (Print \"j\"))) "
+				+ "(If (EQUAL a b) (Block) (Block (If a (Block (Assign x (MOD (PLUS 1 2) 3))) "
+				+ "(Block (Assign print true)))))))", builder.getProgram().toString());
+		assertTrue(builder.getProgram().size() * 4 < builder.getConcreteNodeCount());
+	}
+
+	@Test
+	public void testAstBuildsForEveryValidProgram() throws Exception {
+		for (String source : PROGRAMS) {
+			try {
+				SyntacticAnalyser.validate(LexicalAnalyser.stream(source));
+			} catch (SyntaxException e) {
+				continue;
+			}
+			AstBuilder builder = new AstBuilder();
+			SyntacticAnalyser.parse(LexicalAnalyser.stream(source), builder);
+			String tree = SyntacticAnalyser.parse(LexicalAnalyser.stream(source)).toString();
+			assertEquals(tree.split("\n").length, builder.getConcreteNodeCount(), source);
+		}
+	}
+
+	@Test
+	public void testRenderMatchesRecursiveToString() throws Exception {
+		for (String source : PROGRAMS) {
+			ParseTree tree;
+			try {
+				tree = SyntacticAnalyser.parse(LexicalAnalyser.stream(source));
+			} catch (SyntaxException e) {
+				continue;
+			}
+			String expected = tree.toStringLegacy();
+			assertEquals(expected, tree.toString(), source);
+			StringWriter out = new StringWriter();
+			SyntacticAnalyser.parseCompact(LexicalAnalyser.tokenise(source)).render(out);
+			assertEquals(expected, out.toString(), source);
+		}
+		assertEquals("EMPTY TREE", new ParseTree().toString());
+	}
+
+	@Test
+	public void testRenderDeepNesting() throws Exception {
+		StringBuilder body = new StringBuilder();
+		for (int i = 0; i < 500; i++)
+			body.append("while (a) { ");
+		for (int i = 0; i < 500; i++)
+			body.append("} ");
+		String source = PREFIX + body + SUFFIX;
+		String rendered = SyntacticAnalyser.parse(LexicalAnalyser.stream(source)).toString();
+		StringWriter out = new StringWriter();
+		SyntacticAnalyser.parseCompact(LexicalAnalyser.tokenise(source)).render(out);
+		assertEquals(rendered, out.toString());
+	}
+
+	@Test
+	public void testIncrementalReparseMatchesFullParse() throws Exception {
+		String[] insertions = { "x", " ", ";", "1", "}", "{", "y = 2; ", "while (a) { ", "+", "(", "\n", "\r" };
+		Random random = new Random(42);
+		String source = PREFIX + "int i = 0; while (i < 10) { if (i == 3) { x = x + 1; } else { ; } i = i + 1; }\n"
+				+ "for (int j = 0; j <= i; j + 1) { System.out.println(\"j\"); }\nint k = 'c';" + SUFFIX;
+		ParseTree tree = SyntacticAnalyser.parse(LexicalAnalyser.stream(source));
+		for (int n = 0; n < 500; n++) {
+			int offset = random.nextInt(source.length());
+			int removed = random.nextInt(3) == 0 ? random.nextInt(Math.min(4, source.length() - offset) + 1) : 0;
+			TextEdit edit = new TextEdit(offset, removed, insertions[random.nextInt(insertions.length)]);
+			String edited = edit.apply(source);
+
+			String want;
+			ParseTree full = null;
+			try {
+				full = SyntacticAnalyser.parse(LexicalAnalyser.stream(edited));
+				want = full.toString();
+			} catch (SyntaxException | LexicalException e) {
+				want = e.getMessage();
+			}
+			String got;
+			ParseTree incremental = null;
+			try {
+				incremental = IncrementalParser.reparse(tree, source, edit);
+				got = incremental.toString();
+			} catch (SyntaxException | LexicalException e) {
+				got = e.getMessage();
+			}
+			assertEquals(want, got, edited);
+
+			// Keep editing the valid results, so later edits start from spliced trees
+			if (full != null) {
+				assertEquals(positions(full), positions(incremental), edited);
+				source = edited;
+				tree = incremental;
+			} else {
+				tree = SyntacticAnalyser.parse(LexicalAnalyser.stream(source));
+			}
+		}
+	}
+
+	@Test
+	public void testEditedTokensAreNotRewritten() throws Exception {
+		String source = PREFIX + "int a = 1;\nb = a + 2;\nint c = b;" + SUFFIX;
+		ParseTree tree = SyntacticAnalyser.parse(LexicalAnalyser.stream(source));
+		List<Token> before = new ArrayList<>();
+		for (TreeNode node : terminals(tree.getRoot()))
+			before.add(node.getToken().get());
+
+		// Replace the 2 in "b = a + 2;" with "12345"
+		int offset = source.indexOf("2;");
+		TextEdit edit = new TextEdit(offset, 1, "12345");
+		String edited = edit.apply(source);
+		ParseTree incremental = IncrementalParser.reparse(tree, source, edit);
+		assertEquals(positions(SyntacticAnalyser.parse(LexicalAnalyser.stream(edited))), positions(incremental));
+
+		// The old NUM overlapped the edit, so it keeps its text and position
+		Token two = before.stream().filter(t -> "2".equals(t.getValue().orElse(null))).findFirst().get();
+		assertEquals(offset, two.getOffset());
+		assertEquals(offset + 1, two.getEndOffset());
+		assertEquals(2, two.getLine());
+		assertEquals(9, two.getColumn());
+
+		// Every other token reads its shifted position the same way from any thread
+		Token last = before.get(before.size() - 1);
+		int shifted = source.length() - 1 + edit.delta();
+		ExecutorService threads = Executors.newFixedThreadPool(4);
+		List<Future<Integer>> reads = new ArrayList<>();
+		for (int i = 0; i < 64; i++)
+			reads.add(threads.submit(last::getOffset));
+		for (Future<Integer> read : reads)
+			assertEquals(shifted, read.get());
+		threads.shutdown();
+		assertEquals(shifted, last.getOffset());
+	}
+
+	private static List<TreeNode> terminals(TreeNode root) {
+		List<TreeNode> terminals = new ArrayList<>();
+		List<TreeNode> pending = new ArrayList<>();
+		pending.add(root);
+		while (!pending.isEmpty()) {
+			TreeNode node = pending.remove(pending.size() - 1);
+			if (node.getToken().isPresent())
+				terminals.add(node);
+			for (int i = node.getChildren().size() - 1; i >= 0; i--)
+				pending.add(node.getChildren().get(i));
+		}
+		return terminals;
+	}
+
+	private static List<String> positions(ParseTree tree) {
+		List<String> positions = new ArrayList<>();
+		List<TreeNode> pending = new ArrayList<>();
+		pending.add(tree.getRoot());
+		while (!pending.isEmpty()) {
+			TreeNode node = pending.remove(pending.size() - 1);
+			if (node.getToken().isPresent()) {
+				Token token = node.getToken().get();
+				positions.add(token + "@" + token.getOffset() + "-" + token.getEndOffset() + ":" + token.getLine() + ","
+						+ token.getColumn());
+			}
+			assertTrue(node.getParent() == null || node.getParent().getChildren().contains(node));
+			pending.addAll(node.getChildren());
+		}
+		return positions;
+	}
+
+	@Test
+	public void testCompactTreeCursor() throws Exception {
+		CompactParseTree tree = SyntacticAnalyser
+				.parseCompact(LexicalAnalyser.tokenise(PROGRAMS.get(PROGRAMS.indexOf(PREFIX + "int i;" + SUFFIX))));
+		CompactParseTree.Cursor cursor = tree.cursor();
+		assertEquals(TreeNode.Label.prog, cursor.getLabel());
+		assertFalse(cursor.parent());
+
+		// prog's fourteenth child is the statement list
+		assertTrue(cursor.firstChild());
+		assertEquals(Token.TokenType.PUBLIC, cursor.getToken().get().getType());
+		for (int i = 0; i < 13; i++)
+			assertTrue(cursor.nextSibling());
+		assertEquals(TreeNode.Label.los, cursor.getLabel());
+		assertTrue(cursor.firstChild());
+		assertEquals(TreeNode.Label.stat, cursor.getLabel());
+
+		CompactParseTree.Cursor decl = cursor.copy();
+		assertTrue(decl.firstChild());
+		assertEquals(TreeNode.Label.decl, decl.getLabel());
+		assertEquals(TreeNode.Label.stat, cursor.getLabel());
+		assertTrue(decl.parent());
+		assertEquals(cursor.getNode(), decl.getNode());
+		assertEquals(-1, tree.tokenIndex(0));
+	}
+
+	@Test
+	public void testCompactTreeRootIsBuiltOnce() throws Exception {
+		TokenBuffer tokens = LexicalAnalyser.tokenise(PROGRAMS.get(PROGRAMS.size() - 1));
+		for (int round = 0; round < 20; round++) {
+			CompactParseTree tree = SyntacticAnalyser.parseCompact(tokens);
+			ExecutorService threads = Executors.newFixedThreadPool(4);
+			List<Future<TreeNode>> roots = new ArrayList<>();
+			for (int i = 0; i < 4; i++)
+				roots.add(threads.submit(tree::getRoot));
+			for (Future<TreeNode> root : roots)
+				assertSame(tree.getRoot(), root.get());
+			threads.shutdown();
+		}
+	}
+
+	@Test
+	public void testCompactTreeRendersItsRoot() throws Exception {
+		String source = PROGRAMS.get(0);
+		String want = SyntacticAnalyser.parse(LexicalAnalyser.analyse(source)).toString();
+		CompactParseTree tree = SyntacticAnalyser.parseCompact(LexicalAnalyser.tokenise(source));
+		assertEquals(want, tree.toString());
+
+		// Changes to the graph getRoot gave out show up in the tree
+		tree.getRoot().getChildren().clear();
+		assertEquals("[prog, Optional.empty]\n", tree.toString());
+
+		CompactParseTree replaced = SyntacticAnalyser.parseCompact(LexicalAnalyser.tokenise(source));
+		replaced.setRoot(new TreeNode(TreeNode.Label.prog, null));
+		assertEquals("[prog, Optional.empty]\n", replaced.toString());
+		replaced.setRoot(null);
+		assertEquals("EMPTY TREE", replaced.toString());
+	}
+
+	@Test
+	public void testRecoveringParseReportsTheSameFirstError() throws LexicalException {
+		for (String source : PROGRAMS) {
+			ParseResult result = SyntacticAnalyser.parseRecovering(LexicalAnalyser.stream(source), 10);
+			assertNotNull(result.getTree().getRoot(), source);
+			try {
+				String want = SyntacticAnalyser.parse(LexicalAnalyser.stream(source)).toString();
+				assertFalse(result.hasErrors(), source);
+				assertEquals(want, result.getTree().toString(), source);
+			} catch (SyntaxException e) {
+				assertTrue(result.hasErrors(), source);
+				assertEquals(e.getMessage(), result.getErrors().get(0).getMessage(), source);
+			}
+		}
+	}
+
+	@Test
+	public void testRecoveringParseFindsEveryError() throws LexicalException {
+		String source = PREFIX + "int x = 3 2;\n y = ;\n while (x) { z = * 4; }\n print(x);\n int ok = 1;" + SUFFIX;
+		ParseResult result = SyntacticAnalyser.parseRecovering(LexicalAnalyser.stream(source), 10);
+		List<Integer> lines = new ArrayList<>();
+		for (SyntaxException error : result.getErrors())
+			lines.add(error.getLine());
+		assertEquals(Arrays.asList(1, 2, 3, 4), lines);
+
+		// The statement after the last error is parsed as usual
+		String tree = result.getTree().toString();
+		assertTrue(tree.contains("[error, Optional.empty]"));
+		assertTrue(tree.contains("ok"));
+
+		assertEquals(2, SyntacticAnalyser.parseRecovering(LexicalAnalyser.stream(source), 2).getErrors().size());
+	}
+
+	@Test
+	public void testRecoveringParseTerminates() throws LexicalException {
+		// Every token is consumed by a match or a skip, so any mangling of a valid
+		// program must still finish and end with the whole input read
+		String program = Benchmark.program(2_000);
+		Random random = new Random(17);
+		for (int i = 0; i < 300; i++) {
+			StringBuilder mangled = new StringBuilder(program);
+			for (int j = 0; j < 3; j++) {
+				int at = random.nextInt(mangled.length());
+				mangled.delete(at, Math.min(mangled.length(), at + random.nextInt(8)));
+			}
+			TokenStream tokens = LexicalAnalyser.stream(mangled.toString());
+			try {
+				SyntacticAnalyser.parseRecovering(tokens, 100);
+			} catch (LexicalException e) {
+				continue;
+			}
+			assertEquals(Token.TokenType.EOF, tokens.peek().getType());
+		}
+	}
+
+	@Test
+	public void testBatchMatchesSequentialParses() throws Exception {
+		List<String> sources = new ArrayList<>();
+		for (int i = 0; i < 5; i++)
+			sources.addAll(PROGRAMS);
+
+		// Counts tasks handed to the pool so the sink can check the in-flight bound
+		ExecutorService pool = Executors.newFixedThreadPool(3);
+		AtomicInteger submitted = new AtomicInteger();
+		Executor counting = task -> {
+			submitted.incrementAndGet();
+			pool.execute(task);
+		};
+		BitSet seen = new BitSet();
+		int[] received = new int[1];
+		try {
+			new BatchParser(counting, 4).parseSources(sources, result -> {
+				received[0]++;
+				assertTrue(submitted.get() - received[0] < 4);
+				assertFalse(seen.get(result.getIndex()));
+				seen.set(result.getIndex());
+				String source = sources.get(result.getIndex());
+				try {
+					String want = SyntacticAnalyser.parse(LexicalAnalyser.stream(source)).toString();
+					assertTrue(result.isValid(), source);
+					assertEquals(want, result.getTree().toString(), source);
+				} catch (SyntaxException | LexicalException e) {
+					assertEquals(e.getMessage(), result.getDiagnostics().get(0).getMessage(), source);
+				}
+			});
+		} finally {
+			pool.shutdown();
+		}
+		assertEquals(sources.size(), seen.cardinality());
+	}
+
+	@Test
+	public void testParallelParseMatchesSequential() throws Exception {
+		String source = Benchmark.program(300_000);
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			TokenBuffer tokens = LexicalAnalyser.tokenise(source);
+			ParseTree sequential = SyntacticAnalyser.parse(tokens.asList());
+			for (int chunks : new int[] { 1, 2, 5, 50 })
+				assertArrayEquals(ParseTreeWriter.toBytes(sequential),
+						ParseTreeWriter.toBytes(ParallelParser.parse(tokens, pool, chunks)));
+
+			// A broken statement in a later chunk reports the sequential error
+			String broken = source.substring(0, source.length() - 200) + " x = ; }\n}\n";
+			SyntaxException want = assertThrows(SyntaxException.class,
+					() -> SyntacticAnalyser.parse(LexicalAnalyser.analyse(broken)));
+			SyntaxException got = assertThrows(SyntaxException.class,
+					() -> ParallelParser.parse(LexicalAnalyser.tokenise(broken), pool, 5));
+			assertEquals(want.getMessage(), got.getMessage());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testGeneratedProgramsParse() throws Exception {
+		for (long seed = 0; seed < 50; seed++) {
+			ProgramGenerator generator = new ProgramGenerator(seed);
+			generator.setTargetSize(4096);
+			generator.setMaxDepth(3);
+			StringBuilder source = new StringBuilder();
+			long written = generator.generate(source);
+			assertEquals(source.length(), written);
+			assertTrue(written >= 4096);
+			SyntacticAnalyser.parse(LexicalAnalyser.stream(source));
+
+			StringBuilder again = new StringBuilder();
+			ProgramGenerator same = new ProgramGenerator(seed);
+			same.setTargetSize(4096);
+			same.setMaxDepth(3);
+			same.generate(again);
+			assertEquals(source.toString(), again.toString());
+		}
+
+		ProgramGenerator generator = new ProgramGenerator(1);
+		for (TreeNode.Label statement : EnumSet.of(TreeNode.Label.whilestat, TreeNode.Label.forstat,
+				TreeNode.Label.ifstat, TreeNode.Label.assign, TreeNode.Label.decl))
+			generator.setWeight(statement, 0);
+		generator.setTargetSize(1000);
+		StringBuilder prints = new StringBuilder();
+		generator.generate(prints);
+		String[] lines = prints.toString().split("\n");
+		for (int i = 2; i < lines.length - 2; i++)
+			assertTrue(lines[i].startsWith("\t\tSystem.out.println ("), lines[i]);
+		assertThrows(IllegalArgumentException.class, () -> generator.setWeight(TreeNode.Label.expr, 1));
+	}
+
+	@Test
+	public void testGeneratorInjectsErrors() throws Exception {
+		ProgramGenerator generator = new ProgramGenerator(7);
+		generator.setTargetSize(16 * 1024);
+		generator.setSyntaxErrorRate(0.001);
+		generator.setLexicalErrorRate(0.001);
+		StringBuilder source = new StringBuilder();
+		generator.generate(source);
+		assertTrue(generator.getInjectedErrors() > 0);
+
+		List<LexicalException> lexical = new ArrayList<>();
+		ParseResult result = SyntacticAnalyser.parseRecovering(LexicalAnalyser.streamTolerant(source, lexical), 1000);
+		assertEquals(source.chars().filter(c -> c == '#').count(), lexical.size());
+		assertTrue(result.hasErrors());
+	}
+
+	@Test
+	public void testParseStats() throws Exception {
+		String source = "public class Test { public static void main(String[] args) { int a = 1; while (a < 3) { a = a + 1; } } }";
+		long parses = ParseMetrics.global().getParses();
+		ParseStats stats = new ParseStats();
+		ParseTree tree = SyntacticAnalyser.parse(LexicalAnalyser.stream(source), stats);
+		assertEquals(SyntacticAnalyser.parse(LexicalAnalyser.analyse(source)).toString(), tree.toString());
+		assertEquals(LexicalAnalyser.analyse(source).size() + 1, stats.getTokens());
+		assertTrue(stats.getTableLookups() > 0);
+		assertTrue(stats.getMaxStackDepth() > 1);
+		assertTrue(stats.getNodes() > stats.getTokens());
+		assertFalse(stats.isFailed());
+
+		// A list-backed parse counts the same tokens as a streamed one
+		ParseStats listed = new ParseStats();
+		SyntacticAnalyser.parse(TokenStream.of(LexicalAnalyser.analyse(source)), listed);
+		assertEquals(stats.getTokens(), listed.getTokens());
+		assertEquals(stats.getNodes(), listed.getNodes());
+
+		// Reusing stats adds each call's numbers to the metrics once
+		long tokens = ParseMetrics.global().getTokens();
+		SyntacticAnalyser.parse(TokenStream.of(LexicalAnalyser.analyse(source)), listed);
+		assertEquals(2 * stats.getTokens(), listed.getTokens());
+		assertEquals(stats.getTokens(), ParseMetrics.global().getTokens() - tokens);
+
+		// The lexer's tokens are not counted again by the parse
+		ParseStats failed = new ParseStats();
+		assertThrows(SyntaxException.class,
+				() -> SyntacticAnalyser.parse(TokenStream.of(LexicalAnalyser.tokeniseTimed("public class", failed).asList()), failed));
+		assertEquals(3, failed.getTokens());
+		assertTrue(failed.isFailed());
+		assertTrue(ParseMetrics.global().getParses() >= parses + 4);
+	}
+
+	@Test
+	public void testParseCache() throws Exception {
+		String source = "public class Test { public static void main(String[] args) { int a = 1; } }";
+		ParseCache cache = new ParseCache(1 << 20, true);
+		CompactParseTree tree = cache.parse(source);
+		assertSame(tree, cache.parse(new StringBuilder(source)));
+		assertEquals(SyntacticAnalyser.parse(LexicalAnalyser.analyse(source)).toString(), tree.toString());
+		// One read-only graph for every caller
+		TreeNode root = tree.getRoot();
+		assertSame(root, tree.getRoot());
+		assertThrows(UnsupportedOperationException.class, () -> tree.setRoot(null));
+		assertThrows(UnsupportedOperationException.class, () -> root.getChildren().clear());
+		assertThrows(UnsupportedOperationException.class, () -> root.addChild(new TreeNode(TreeNode.Label.epsilon, root)));
+		TreeNode leaf = terminals(root).get(0);
+		assertThrows(UnsupportedOperationException.class, () -> leaf.getChildren().add(leaf));
+		assertThrows(UnsupportedOperationException.class, () -> leaf.setParent(null));
+		assertThrows(UnsupportedOperationException.class, () -> leaf.setToken(leaf.getToken().get()));
+
+		SyntaxException failure = assertThrows(SyntaxException.class, () -> cache.parse("public class"));
+		assertSame(failure, assertThrows(SyntaxException.class, () -> cache.parse("public class")));
+		assertEquals(2, cache.getHits());
+		assertEquals(2, cache.getMisses());
+		assertEquals(2, cache.size());
+
+		// Room for about one entry, so each new source evicts the last
+		ParseCache small = new ParseCache(cache.getWeight(), false);
+		small.parse(source);
+		small.parse(source.replace('1', '2'));
+		assertEquals(1, small.size());
+		assertEquals(1, small.getEvictions());
+		assertTrue(small.getWeight() <= small.getMaxBytes());
+		assertThrows(SyntaxException.class, () -> small.parse("public class"));
+		assertEquals(1, small.size());
+	}
+
+	@Test
+	public void testReparseLeavesCachedTreeAlone() throws Exception {
+		String source = PREFIX + "int a = 1;\nb = a + 2;\nint c = b;" + SUFFIX;
+		ParseCache cache = new ParseCache(1 << 20, false);
+		List<String> cached = positions(cache.parse(source));
+
+		// The edit falls inside a statement, which would otherwise be edited in place
+		int offset = source.indexOf("2;");
+		TextEdit edit = new TextEdit(offset, 1, "12345");
+		ParseTree edited = IncrementalParser.reparse(cache.parse(source), source, edit);
+		assertEquals(positions(SyntacticAnalyser.parse(LexicalAnalyser.stream(edit.apply(source)))), positions(edited));
+		assertEquals(cached, positions(cache.parse(source)));
+
+		SourceText shared = cache.parse(source).getTokens().getSource();
+		assertThrows(IllegalStateException.class, () -> shared.edit(edit, edit.apply(source), 0, source.length()));
+	}
+
+	@Test
+	public void testFirstAndFollowSets() throws Exception {
+		Grammar grammar = Grammar.load(Paths.get("SimpleJava.grammar"));
+		assertEquals(TreeNode.Label.prog, grammar.getStart());
+		assertTrue(grammar.isNullable(TreeNode.Label.los));
+		assertFalse(grammar.isNullable(TreeNode.Label.stat));
+		assertEquals(EnumSet.of(Token.TokenType.LPAREN, Token.TokenType.ID, Token.TokenType.NUM,
+				Token.TokenType.TRUE, Token.TokenType.FALSE), grammar.first(TreeNode.Label.relexpr));
+		assertEquals(EnumSet.of(Token.TokenType.SEMICOLON, Token.TokenType.RPAREN),
+				grammar.follow(TreeNode.Label.boolexpr));
+		assertEquals(EnumSet.of(Token.TokenType.EOF), grammar.follow(TreeNode.Label.prog));
+	}
+
+	@Test
+	public void testConflictsAreReported() {
+		assertThrows(IllegalStateException.class, () -> Grammar.parse("prog -> ID | ID NUM").table());
+		assertThrows(IllegalStateException.class, () -> Grammar.parse("prog -> los ID\nlos -> ID | epsilon").table());
+		assertThrows(IllegalArgumentException.class, () -> Grammar.parse("prog -> nonsense"));
+	}
+
+}
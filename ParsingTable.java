@@ -0,0 +1,180 @@
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// The LL(1) table compiled to dense int arrays. Symbols are numbered with the
+// token types first (their ordinals) followed by the tree labels, so a lookup
+// is table[nonTerminal][tokenType] -> production id, and each production is a
+// flat array of symbol ids. Identical right-hand sides share one production.
+final class ParsingTable {
+
+	static final Token.TokenType[] TERMINALS = Token.TokenType.values();
+	static final TreeNode.Label[] NON_TERMINALS = TreeNode.Label.values();
+
+	static final int EPSILON = id(TreeNode.Label.epsilon);
+
+	private final int[][] table;
+	private final int[][] productions;
+
+	ParsingTable(int[][] table, int[][] productions) {
+		this.table = table;
+		this.productions = productions;
+	}
+
+	public static ParsingTable compile(Map<Pair<Symbol, Token.TokenType>, List<Symbol>> entries) {
+		int[][] table = new int[NON_TERMINALS.length][TERMINALS.length];
+		for (int[] row : table)
+			Arrays.fill(row, -1);
+
+		// Walked in symbol order rather than map order so production ids are stable
+		List<int[]> productions = new ArrayList<>();
+		Map<List<Symbol>, Integer> ids = new HashMap<>();
+		for (TreeNode.Label nonTerminal : NON_TERMINALS) {
+			for (Token.TokenType terminal : TERMINALS) {
+				List<Symbol> rhs = entries.get(new Pair<Symbol, Token.TokenType>(nonTerminal, terminal));
+				if (rhs == null)
+					continue;
+				Integer production = ids.get(rhs);
+				if (production == null) {
+					int[] symbols = new int[rhs.size()];
+					for (int i = 0; i < symbols.length; i++)
+						symbols[i] = id(rhs.get(i));
+					production = productions.size();
+					productions.add(symbols);
+					ids.put(rhs, production);
+				}
+				table[nonTerminal.ordinal()][terminal.ordinal()] = production;
+			}
+		}
+		return new ParsingTable(table, productions.toArray(new int[0][]));
+	}
+
+	// Decodes the table generated from SimpleJava.grammar, failing fast if the
+	// token types or labels have changed since the snapshot was written
+	public static ParsingTable fromSnapshot() {
+		if (!ParsingTableSnapshot.SYMBOLS.equals(symbolNames()))
+			throw new IllegalStateException(
+					"ParsingTableSnapshot is stale: token types or labels have changed; rerun Grammar");
+
+		String cells = ParsingTableSnapshot.TABLE;
+		int[][] table = new int[NON_TERMINALS.length][TERMINALS.length];
+		for (int i = 0; i < cells.length(); i++)
+			table[i / TERMINALS.length][i % TERMINALS.length] = cells.charAt(i) - 1;
+
+		String encoded = ParsingTableSnapshot.PRODUCTIONS;
+		List<int[]> productions = new ArrayList<>();
+		for (int i = 0; i < encoded.length();) {
+			int[] rhs = new int[encoded.charAt(i++)];
+			for (int j = 0; j < rhs.length; j++)
+				rhs[j] = encoded.charAt(i++);
+			productions.add(rhs);
+		}
+		return new ParsingTable(table, productions.toArray(new int[0][]));
+	}
+
+	// FOLLOW sets from the snapshot as bit masks over token type ordinals,
+	// indexed by label ordinal
+	static long[] followSets() {
+		String encoded = ParsingTableSnapshot.FOLLOW;
+		long[] sets = new long[NON_TERMINALS.length];
+		for (int label = 0, i = 0; label < sets.length; label++) {
+			int count = encoded.charAt(i++);
+			for (int j = 0; j < count; j++)
+				sets[label] |= 1L << encoded.charAt(i++);
+		}
+		return sets;
+	}
+
+	static String symbolNames() {
+		StringBuilder names = new StringBuilder();
+		for (Token.TokenType terminal : TERMINALS)
+			names.append(terminal).append(',');
+		for (TreeNode.Label nonTerminal : NON_TERMINALS)
+			names.append(nonTerminal).append(',');
+		return names.substring(0, names.length() - 1);
+	}
+
+	// Production id plus one for every cell, row by row
+	int[] encodeTable() {
+		int[] cells = new int[NON_TERMINALS.length * TERMINALS.length];
+		for (int row = 0; row < table.length; row++)
+			for (int column = 0; column < table[row].length; column++)
+				cells[row * TERMINALS.length + column] = table[row][column] + 1;
+		return cells;
+	}
+
+	// Identifies the grammar version: a hash over the symbols, table and productions
+	public String fingerprint() {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(symbolNames().getBytes(StandardCharsets.UTF_8));
+			for (int cell : encodeTable())
+				digest.update((byte) cell);
+			for (int[] rhs : productions) {
+				digest.update((byte) rhs.length);
+				for (int symbol : rhs)
+					digest.update((byte) symbol);
+			}
+			StringBuilder hex = new StringBuilder();
+			for (byte b : Arrays.copyOf(digest.digest(), 8))
+				hex.append(String.format("%02x", b));
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public static int id(Symbol symbol) {
+		if (symbol.isVariable())
+			return TERMINALS.length + ((TreeNode.Label) symbol).ordinal();
+		return ((Token.TokenType) symbol).ordinal();
+	}
+
+	public static Symbol symbol(int id) {
+		return isTerminal(id) ? TERMINALS[id] : NON_TERMINALS[id - TERMINALS.length];
+	}
+
+	public static boolean isTerminal(int id) {
+		return id < TERMINALS.length;
+	}
+
+	public static TreeNode.Label label(int id) {
+		return NON_TERMINALS[id - TERMINALS.length];
+	}
+
+	// Production id for a non-terminal symbol id and lookahead, or -1 for an error entry
+	public int production(int nonTerminal, Token.TokenType lookahead) {
+		return table[nonTerminal - TERMINALS.length][lookahead.ordinal()];
+	}
+
+	public int[] rhs(int production) {
+		return productions[production];
+	}
+
+	public static boolean isEpsilon(int[] rhs) {
+		return rhs.length == 1 && rhs[0] == EPSILON;
+	}
+
+	public int productionCount() {
+		return productions.length;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof ParsingTable))
+			return false;
+		ParsingTable t = (ParsingTable) other;
+		return Arrays.deepEquals(table, t.table) && Arrays.deepEquals(productions, t.productions);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.deepHashCode(table);
+	}
+
+}
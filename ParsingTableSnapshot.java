@@ -0,0 +1,142 @@
+// Generated by Grammar from SimpleJava.grammar; do not edit by hand.
+// Regenerate with: java Grammar
+final class ParsingTableSnapshot {
+
+	// Symbol names in id order; the table is stale if these no longer match the enums
+	static final String SYMBOLS = "PLUS,MINUS,TIMES,DIVIDE,MOD,ASSIGN,EQUAL,NEQUAL,LT,LE,GT,GE,LPAREN,RPAREN,LBRACE,RBRACE,AND,OR,SEMICOLON,PUBLIC,CLASS,STATIC,VOID,MAIN,STRINGARR,ARGS,TYPE,PRINT,WHILE,FOR,IF,ELSE,DQUOTE,SQUOTE,ID,NUM,CHARLIT,TRUE,FALSE,STRINGLIT,ERROR,EOF,prog,los,stat,whilestat,forstat,forstart,forarith,ifstat,elseifstat,elseorelseif,possif,assign,decl,possassign,print,type,expr,boolexpr,boolop,booleq,boollog,relexpr,relexprprime,relop,arithexpr,arithexprprime,term,termprime,factor,printexpr,charexpr,epsilon,terminal,error";
+
+	// Hash of the symbols, table and productions, identifying this grammar version
+	static final String FINGERPRINT = "ddfd4071a3229131";
+
+	// One char per cell, row by row: the production id plus one, or 0 for an error entry
+	static final String TABLE = ""
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\001\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\002\000\000\003\000\000\000\000\000\000\000\003\003\003\003\003\000\000\000\003\000\000\000\000\000\000\002"
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\004\000\000\000\000\000\000\000\005\006\007\010\011\000\000\000\012\000\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\013\000\000\000\000\000\000\000\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\014\000\000\000\000\000\000\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\002\000\000\000\000\000\000\000\015\000\000\000\000\000\000\000\016\000\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\017\002\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\017\017\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\020\000\000\000\000\000\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\002\000\000\002\000\000\000\000\000\000\000\002\002\002\002\002\021\000\000\002\000\000\000\000\000\000\002"
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\022\000\000\000\000\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\000\000\002\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\023\000\000\000\000\000\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\024\000\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\025\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\026\000\000\000\000\000\000\000\000\000\000\000\000\002\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\027\000\000\000\000\000\000\000\000\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\030\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\031\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\032\031\031\000\031\031\000\000\000"
+			+ "\000\000\000\000\000\000\033\033\000\000\000\000\000\002\000\000\033\033\002\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\000\034\034\000\000\000\000\000\000\000\000\035\035\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\000\036\037\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\040\041\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\042\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\042\042\000\043\044\000\000\000"
+			+ "\000\000\000\000\000\000\002\002\045\045\045\045\000\002\000\000\002\002\002\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\000\000\000\046\047\050\051\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\052\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\052\052\000\000\000\000\000\000"
+			+ "\053\054\000\000\000\000\002\002\002\002\002\002\000\002\000\000\002\002\002\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\055\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\055\055\000\000\000\000\000\000"
+			+ "\002\002\056\057\060\000\002\002\002\002\002\002\000\002\000\000\002\002\002\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\061\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\062\063\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\031\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\064\000\031\031\000\031\031\000\000\000"
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\065\000\000\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000"
+			+ "\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000\000";
+
+	// Each production as its length followed by its symbol ids
+	static final String PRODUCTIONS = ""
+			+ "\020\023\024\042\016\023\025\026\027\014\030\031\015\016\053\017\017"
+			+ "\001\111"
+			+ "\002\054\053"
+			+ "\001\022"
+			+ "\002\066\022"
+			+ "\002\070\022"
+			+ "\001\055"
+			+ "\001\056"
+			+ "\001\061"
+			+ "\002\065\022"
+			+ "\010\034\014\077\073\015\016\053\017"
+			+ "\014\035\014\057\022\077\073\022\060\015\016\053\017"
+			+ "\001\066"
+			+ "\001\065"
+			+ "\001\102"
+			+ "\011\036\014\077\073\015\016\053\017\062"
+			+ "\005\063\016\053\017\062"
+			+ "\002\037\064"
+			+ "\005\036\014\077\073\015"
+			+ "\003\042\005\072"
+			+ "\003\071\042\067"
+			+ "\002\005\072"
+			+ "\004\033\014\107\015"
+			+ "\001\032"
+			+ "\002\077\073"
+			+ "\001\110"
+			+ "\003\074\077\073"
+			+ "\001\075"
+			+ "\001\076"
+			+ "\001\006"
+			+ "\001\007"
+			+ "\001\020"
+			+ "\001\021"
+			+ "\002\102\100"
+			+ "\001\045"
+			+ "\001\046"
+			+ "\002\101\102"
+			+ "\001\010"
+			+ "\001\011"
+			+ "\001\012"
+			+ "\001\013"
+			+ "\002\104\103"
+			+ "\003\000\104\103"
+			+ "\003\001\104\103"
+			+ "\002\106\105"
+			+ "\003\002\106\105"
+			+ "\003\003\106\105"
+			+ "\003\004\106\105"
+			+ "\003\014\102\015"
+			+ "\001\042"
+			+ "\001\043"
+			+ "\003\040\047\040"
+			+ "\003\041\044\041";
+
+	// FOLLOW of each label in ordinal order, as a count followed by token type ids;
+	// error recovery synchronises on these
+	static final String FOLLOW = ""
+			+ "\001\051"
+			+ "\001\017"
+			+ "\010\017\022\032\033\034\035\036\042"
+			+ "\010\017\022\032\033\034\035\036\042"
+			+ "\010\017\022\032\033\034\035\036\042"
+			+ "\001\022"
+			+ "\001\015"
+			+ "\010\017\022\032\033\034\035\036\042"
+			+ "\010\017\022\032\033\034\035\036\042"
+			+ "\001\016"
+			+ "\001\016"
+			+ "\001\022"
+			+ "\001\022"
+			+ "\001\022"
+			+ "\001\022"
+			+ "\001\042"
+			+ "\001\022"
+			+ "\002\015\022"
+			+ "\005\014\042\043\045\046"
+			+ "\005\014\042\043\045\046"
+			+ "\005\014\042\043\045\046"
+			+ "\006\006\007\015\020\021\022"
+			+ "\006\006\007\015\020\021\022"
+			+ "\003\014\042\043"
+			+ "\012\006\007\010\011\012\013\015\020\021\022"
+			+ "\012\006\007\010\011\012\013\015\020\021\022"
+			+ "\014\000\001\006\007\010\011\012\013\015\020\021\022"
+			+ "\014\000\001\006\007\010\011\012\013\015\020\021\022"
+			+ "\017\000\001\002\003\004\006\007\010\011\012\013\015\020\021\022"
+			+ "\001\015"
+			+ "\001\022"
+			+ "\000"
+			+ "\000"
+			+ "\000";
+
+}
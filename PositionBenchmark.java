@@ -0,0 +1,29 @@
+// Measures what source position tracking costs the lexer: scanning with and
+// without the line map, and resolving the line and column of every token.
+public class PositionBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		for (int size : new int[] { 64 * 1024, 8 * 1024 * 1024 }) {
+			String source = Benchmark.program(size);
+			String label = (size / 1024) + "KB ";
+
+			Benchmark.run(label + "tokenise without line map", source.length(), () -> {
+				LexicalScanner scanner = new LexicalScanner(source, LexemePool.shared(), false);
+				TokenBuffer buffer = new TokenBuffer(scanner.getSource());
+				scanner.scanInto(buffer);
+				return buffer;
+			});
+			Benchmark.run(label + "tokenise with line map", source.length(), () -> LexicalAnalyser.tokenise(source));
+
+			TokenBuffer buffer = LexicalAnalyser.tokenise(source);
+			Benchmark.run(label + "line and column of every token", source.length(), () -> {
+				int sum = 0;
+				for (int i = 0; i < buffer.size(); i++)
+					sum += buffer.getSource().getLines().line(buffer.start(i))
+							+ buffer.getSource().getLines().column(buffer.start(i));
+				return sum;
+			});
+		}
+	}
+
+}
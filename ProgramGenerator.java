@@ -0,0 +1,371 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Generates random valid SimpleJava programs by expanding productions from the
+// parsing table, leftmost first, with an explicit stack. Output is written as
+// it is produced and the stack only grows with the nesting, so memory stays
+// constant however large the program. The same seed and settings always give
+// the same text.
+//
+// Statements are chosen by weight until the target size is reached; after
+// that every non-terminal takes its shortest production so the program closes
+// as quickly as it can. At or beyond the maximum depth, anything that would
+// open another block takes its shortest production too. Parentheses in
+// expressions are limited the same way.
+//
+// Error injection inserts a stray ')' (every valid program balances its
+// parentheses, so this is always a syntax error) or a '#' (never a valid
+// character, so always a lexical error) before a token, at the given rates.
+public class ProgramGenerator {
+
+	private static final ParsingTable TABLE = SyntacticAnalyser.table();
+	private static final int STAT = ParsingTable.id(TreeNode.Label.stat);
+	private static final int LOS = ParsingTable.id(TreeNode.Label.los);
+	private static final int FACTOR = ParsingTable.id(TreeNode.Label.factor);
+	private static final int MAX_PARENTHESES = 2;
+	private static final int MAX_INDENT = 32;
+	// Chance that a nested block has another statement
+	private static final double NESTED_STATEMENT = 0.6;
+
+	// Distinct productions of each non-terminal by label ordinal, and the fewest
+	// terminals each symbol can derive
+	private static final int[][] PRODUCTIONS = productions();
+	private static final int[] COST = costs();
+
+	private final Random random;
+	private long targetSize = 64 * 1024;
+	private int maxDepth = 8;
+	private final int[] weights = new int[ParsingTable.NON_TERMINALS.length];
+	private double syntaxErrorRate;
+	private double lexicalErrorRate;
+
+	// Output state for one run
+	private Appendable out;
+	private long written;
+	private int braces;
+	private int parentheses;
+	private boolean quoted;
+	private boolean newline;
+	private int injected;
+
+	public ProgramGenerator(long seed) {
+		this.random = new Random(seed);
+		weights[TreeNode.Label.whilestat.ordinal()] = 1;
+		weights[TreeNode.Label.forstat.ordinal()] = 1;
+		weights[TreeNode.Label.ifstat.ordinal()] = 1;
+		weights[TreeNode.Label.assign.ordinal()] = 4;
+		weights[TreeNode.Label.decl.ordinal()] = 3;
+		weights[TreeNode.Label.print.ordinal()] = 2;
+	}
+
+	// Approximate size in characters; the program ends at the first point after it
+	public void setTargetSize(long chars) {
+		this.targetSize = chars;
+	}
+
+	// Deepest nesting of while, for and if blocks inside main
+	public void setMaxDepth(int depth) {
+		this.maxDepth = depth;
+	}
+
+	// Relative frequency of a kind of statement: whilestat, forstat, ifstat,
+	// assign, decl or print
+	public void setWeight(TreeNode.Label statement, int weight) {
+		if (weight < 0 || statementProduction(statement) < 0)
+			throw new IllegalArgumentException("Cannot weight " + statement + " as " + weight);
+		weights[statement.ordinal()] = weight;
+	}
+
+	// Chance per token of inserting an error before it
+	public void setSyntaxErrorRate(double rate) {
+		this.syntaxErrorRate = rate;
+	}
+
+	public void setLexicalErrorRate(double rate) {
+		this.lexicalErrorRate = rate;
+	}
+
+	// Errors inserted by the last run
+	public int getInjectedErrors() {
+		return this.injected;
+	}
+
+	public void generate(Path file) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+			generate(writer);
+		}
+	}
+
+	// Returns the number of characters written
+	public long generate(Appendable out) throws IOException {
+		this.out = out;
+		written = 0;
+		braces = 0;
+		parentheses = 0;
+		quoted = false;
+		newline = false;
+		injected = 0;
+
+		int[] symbols = new int[64];
+		int top = 0;
+		symbols[top++] = ParsingTable.id(TreeNode.Label.prog);
+		while (top > 0) {
+			int symbol = symbols[--top];
+			if (ParsingTable.isTerminal(symbol)) {
+				terminal(ParsingTable.TERMINALS[symbol]);
+				continue;
+			}
+			int[] rhs = TABLE.rhs(choose(symbol));
+			if (ParsingTable.isEpsilon(rhs))
+				continue;
+			if (top + rhs.length > symbols.length)
+				symbols = Arrays.copyOf(symbols, Math.max(symbols.length * 2, top + rhs.length));
+			for (int i = rhs.length - 1; i >= 0; i--)
+				symbols[top++] = rhs[i];
+		}
+		out.append('\n');
+		this.out = null;
+		return ++written;
+	}
+
+	private int choose(int symbol) {
+		int[] productions = PRODUCTIONS[ParsingTable.label(symbol).ordinal()];
+		boolean closing = written >= targetSize;
+		// Blocks inside main are nested one level below the class and main braces
+		int depth = braces - 2;
+
+		if (symbol == LOS && !closing) {
+			boolean more = depth == 0 || random.nextDouble() < NESTED_STATEMENT;
+			return more ? nonEmpty(productions) : shortest(productions);
+		}
+		if (symbol == STAT && !closing)
+			return weighted(productions, depth < maxDepth);
+		if (closing || (symbol == FACTOR && parentheses >= MAX_PARENTHESES) || depth >= maxDepth && opensBlock(productions))
+			return shortest(productions);
+		// Optional parts are left out half the time, which keeps operator chains
+		// such as termprime short
+		int empty = shortest(productions);
+		if (ParsingTable.isEpsilon(TABLE.rhs(empty)) && random.nextBoolean())
+			return empty;
+		return productions[random.nextInt(productions.length)];
+	}
+
+	private int weighted(int[] productions, boolean blocks) {
+		int total = 0;
+		for (int production : productions)
+			total += weight(production, blocks);
+		if (total == 0)
+			return shortest(productions);
+		int pick = random.nextInt(total);
+		for (int production : productions) {
+			pick -= weight(production, blocks);
+			if (pick < 0)
+				return production;
+		}
+		throw new IllegalStateException();
+	}
+
+	private int weight(int production, boolean blocks) {
+		int first = TABLE.rhs(production)[0];
+		if (ParsingTable.isTerminal(first))
+			return 0;
+		TreeNode.Label label = ParsingTable.label(first);
+		if (!blocks && (label == TreeNode.Label.whilestat || label == TreeNode.Label.forstat || label == TreeNode.Label.ifstat))
+			return 0;
+		return weights[label.ordinal()];
+	}
+
+	private static boolean opensBlock(int[] productions) {
+		for (int production : productions)
+			for (int symbol : TABLE.rhs(production))
+				if (symbol == Token.TokenType.LBRACE.ordinal())
+					return true;
+		return false;
+	}
+
+	private static int shortest(int[] productions) {
+		int best = productions[0];
+		for (int production : productions)
+			if (cost(production) < cost(best))
+				best = production;
+		return best;
+	}
+
+	private static int nonEmpty(int[] productions) {
+		for (int production : productions)
+			if (!ParsingTable.isEpsilon(TABLE.rhs(production)))
+				return production;
+		throw new IllegalStateException();
+	}
+
+	private static int cost(int production) {
+		int cost = 0;
+		for (int symbol : TABLE.rhs(production))
+			cost += COST[symbol];
+		return cost;
+	}
+
+	private static int statementProduction(TreeNode.Label statement) {
+		for (int production : PRODUCTIONS[TreeNode.Label.stat.ordinal()]) {
+			int first = TABLE.rhs(production)[0];
+			if (!ParsingTable.isTerminal(first) && ParsingTable.label(first) == statement)
+				return production;
+		}
+		return -1;
+	}
+
+	private void terminal(Token.TokenType type) throws IOException {
+		boolean quote = type == Token.TokenType.SQUOTE || type == Token.TokenType.DQUOTE;
+		// Inside a literal the quotes and the text must be adjacent
+		boolean adjacent = quoted;
+		if (quote)
+			quoted = !quoted;
+
+		if (!adjacent) {
+			if (random.nextDouble() < syntaxErrorRate) {
+				emit(")");
+				injected++;
+			}
+			if (random.nextDouble() < lexicalErrorRate) {
+				emit("#");
+				injected++;
+			}
+		}
+
+		switch (type) {
+		case RBRACE:
+			braces--;
+			newline = true;
+			break;
+		case LPAREN:
+			parentheses++;
+			break;
+		case RPAREN:
+			parentheses--;
+			break;
+		default:
+			break;
+		}
+		if (adjacent)
+			append(text(type));
+		else
+			emit(text(type));
+		switch (type) {
+		case LBRACE:
+			braces++;
+			newline = true;
+			break;
+		case RBRACE:
+			newline = true;
+			break;
+		case SEMICOLON:
+			// Not between the parentheses of a for
+			newline = parentheses == 0;
+			break;
+		default:
+			break;
+		}
+	}
+
+	// Writes a token after a space or line break
+	private void emit(String text) throws IOException {
+		if (newline) {
+			append("\n");
+			for (int i = Math.min(braces, MAX_INDENT); i > 0; i--)
+				append("\t");
+			newline = false;
+		} else if (written > 0) {
+			append(" ");
+		}
+		append(text);
+	}
+
+	private void append(String text) throws IOException {
+		out.append(text);
+		written += text.length();
+	}
+
+	private String text(Token.TokenType type) {
+		switch (type) {
+		case ID:
+			return "v" + random.nextInt(64);
+		case NUM:
+			return String.valueOf(random.nextInt(1000));
+		case CHARLIT:
+			return String.valueOf((char) ('a' + random.nextInt(26)));
+		case STRINGLIT: {
+			StringBuilder text = new StringBuilder();
+			for (int words = 1 + random.nextInt(4); words > 0; words--) {
+				if (text.length() > 0)
+					text.append(' ');
+				for (int letters = 1 + random.nextInt(7); letters > 0; letters--)
+					text.append((char) ('a' + random.nextInt(26)));
+			}
+			return text.toString();
+		}
+		case TYPE:
+			return random.nextInt(3) == 0 ? "boolean" : random.nextBoolean() ? "int" : "char";
+		case SQUOTE:
+			return "'";
+		case DQUOTE:
+			return "\"";
+		default:
+			return Token.spelling(type);
+		}
+	}
+
+	private static int[][] productions() {
+		int[][] productions = new int[ParsingTable.NON_TERMINALS.length][];
+		for (TreeNode.Label label : ParsingTable.NON_TERMINALS) {
+			List<Integer> distinct = new ArrayList<>();
+			for (Token.TokenType lookahead : ParsingTable.TERMINALS) {
+				int production = TABLE.production(ParsingTable.id(label), lookahead);
+				if (production >= 0 && !distinct.contains(production))
+					distinct.add(production);
+			}
+			distinct.sort(null);
+			productions[label.ordinal()] = distinct.stream().mapToInt(Integer::intValue).toArray();
+		}
+		return productions;
+	}
+
+	// Fewest terminals derivable from each symbol id, by iterating to a fixed point
+	private static int[] costs() {
+		int terminals = ParsingTable.TERMINALS.length;
+		int[] cost = new int[terminals + ParsingTable.NON_TERMINALS.length];
+		Arrays.fill(cost, terminals, cost.length, Integer.MAX_VALUE / 2);
+		Arrays.fill(cost, 0, terminals, 1);
+		cost[ParsingTable.EPSILON] = 0;
+		for (boolean changed = true; changed;) {
+			changed = false;
+			for (TreeNode.Label label : ParsingTable.NON_TERMINALS) {
+				for (int production : PRODUCTIONS[label.ordinal()]) {
+					int sum = 0;
+					for (int symbol : TABLE.rhs(production))
+						sum = Math.min(Integer.MAX_VALUE / 2, sum + cost[symbol]);
+					int id = ParsingTable.id(label);
+					if (sum < cost[id]) {
+						cost[id] = sum;
+						changed = true;
+					}
+				}
+			}
+		}
+		return cost;
+	}
+
+	// java ProgramGenerator <file> <size in chars> [seed]
+	public static void main(String[] args) throws IOException {
+		ProgramGenerator generator = new ProgramGenerator(args.length > 2 ? Long.parseLong(args[2]) : 0);
+		generator.setTargetSize(Long.parseLong(args[1]));
+		generator.generate(Path.of(args[0]));
+	}
+
+}
@@ -0,0 +1,636 @@
+// Generated by Grammar from SimpleJava.grammar; do not edit by hand.
+// Regenerate with: java Grammar
+// Recursive-descent engine with one method per non-terminal. It builds the
+// same ParseTree as the table-driven pushdown automaton in SyntacticAnalyser.
+final class RecursiveDescentParser {
+
+	private final TokenStream tokens;
+
+	private RecursiveDescentParser(TokenStream tokens) {
+		this.tokens = tokens;
+	}
+
+	static ParseTree parse(TokenStream tokens) throws SyntaxException, LexicalException {
+		TreeNode root = new TreeNode(TreeNode.Label.prog, null);
+		new RecursiveDescentParser(tokens).prog(root);
+		if (tokens.peek().getType() != Token.TokenType.EOF)
+			throw SyntacticAnalyser.error("Extra tokens at the end", tokens.peek());
+		return new ParseTree(root);
+	}
+
+	private void prog(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case PUBLIC:
+			match(node, Token.TokenType.PUBLIC);
+			match(node, Token.TokenType.CLASS);
+			match(node, Token.TokenType.ID);
+			match(node, Token.TokenType.LBRACE);
+			match(node, Token.TokenType.PUBLIC);
+			match(node, Token.TokenType.STATIC);
+			match(node, Token.TokenType.VOID);
+			match(node, Token.TokenType.MAIN);
+			match(node, Token.TokenType.LPAREN);
+			match(node, Token.TokenType.STRINGARR);
+			match(node, Token.TokenType.ARGS);
+			match(node, Token.TokenType.RPAREN);
+			match(node, Token.TokenType.LBRACE);
+			los(child(node, TreeNode.Label.los));
+			match(node, Token.TokenType.RBRACE);
+			match(node, Token.TokenType.RBRACE);
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for prog with input " + token.getType(), token);
+		}
+	}
+
+	private void los(TreeNode node) throws SyntaxException, LexicalException {
+		while (true) {
+			Token token = tokens.peek();
+			switch (token.getType()) {
+			case SEMICOLON:
+			case TYPE:
+			case PRINT:
+			case WHILE:
+			case FOR:
+			case IF:
+			case ID:
+				stat(child(node, TreeNode.Label.stat));
+				node = child(node, TreeNode.Label.los);
+				continue;
+			case RBRACE:
+			case EOF:
+				epsilon(node);
+				return;
+			default:
+				throw SyntacticAnalyser.error("No production found for los with input " + token.getType(), token);
+			}
+		}
+	}
+
+	private void stat(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case WHILE:
+			whilestat(child(node, TreeNode.Label.whilestat));
+			return;
+		case FOR:
+			forstat(child(node, TreeNode.Label.forstat));
+			return;
+		case IF:
+			ifstat(child(node, TreeNode.Label.ifstat));
+			return;
+		case ID:
+			assign(child(node, TreeNode.Label.assign));
+			match(node, Token.TokenType.SEMICOLON);
+			return;
+		case TYPE:
+			decl(child(node, TreeNode.Label.decl));
+			match(node, Token.TokenType.SEMICOLON);
+			return;
+		case PRINT:
+			print(child(node, TreeNode.Label.print));
+			match(node, Token.TokenType.SEMICOLON);
+			return;
+		case SEMICOLON:
+			match(node, Token.TokenType.SEMICOLON);
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for stat with input " + token.getType(), token);
+		}
+	}
+
+	private void whilestat(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case WHILE:
+			match(node, Token.TokenType.WHILE);
+			match(node, Token.TokenType.LPAREN);
+			relexpr(child(node, TreeNode.Label.relexpr));
+			boolexpr(child(node, TreeNode.Label.boolexpr));
+			match(node, Token.TokenType.RPAREN);
+			match(node, Token.TokenType.LBRACE);
+			los(child(node, TreeNode.Label.los));
+			match(node, Token.TokenType.RBRACE);
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for whilestat with input " + token.getType(), token);
+		}
+	}
+
+	private void forstat(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case FOR:
+			match(node, Token.TokenType.FOR);
+			match(node, Token.TokenType.LPAREN);
+			forstart(child(node, TreeNode.Label.forstart));
+			match(node, Token.TokenType.SEMICOLON);
+			relexpr(child(node, TreeNode.Label.relexpr));
+			boolexpr(child(node, TreeNode.Label.boolexpr));
+			match(node, Token.TokenType.SEMICOLON);
+			forarith(child(node, TreeNode.Label.forarith));
+			match(node, Token.TokenType.RPAREN);
+			match(node, Token.TokenType.LBRACE);
+			los(child(node, TreeNode.Label.los));
+			match(node, Token.TokenType.RBRACE);
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for forstat with input " + token.getType(), token);
+		}
+	}
+
+	private void forstart(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case TYPE:
+			decl(child(node, TreeNode.Label.decl));
+			return;
+		case ID:
+			assign(child(node, TreeNode.Label.assign));
+			return;
+		case SEMICOLON:
+			epsilon(node);
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for forstart with input " + token.getType(), token);
+		}
+	}
+
+	private void forarith(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case LPAREN:
+		case ID:
+		case NUM:
+			arithexpr(child(node, TreeNode.Label.arithexpr));
+			return;
+		case RPAREN:
+			epsilon(node);
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for forarith with input " + token.getType(), token);
+		}
+	}
+
+	private void ifstat(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case IF:
+			match(node, Token.TokenType.IF);
+			match(node, Token.TokenType.LPAREN);
+			relexpr(child(node, TreeNode.Label.relexpr));
+			boolexpr(child(node, TreeNode.Label.boolexpr));
+			match(node, Token.TokenType.RPAREN);
+			match(node, Token.TokenType.LBRACE);
+			los(child(node, TreeNode.Label.los));
+			match(node, Token.TokenType.RBRACE);
+			elseifstat(child(node, TreeNode.Label.elseifstat));
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for ifstat with input " + token.getType(), token);
+		}
+	}
+
+	private void elseifstat(TreeNode node) throws SyntaxException, LexicalException {
+		while (true) {
+			Token token = tokens.peek();
+			switch (token.getType()) {
+			case ELSE:
+				elseorelseif(child(node, TreeNode.Label.elseorelseif));
+				match(node, Token.TokenType.LBRACE);
+				los(child(node, TreeNode.Label.los));
+				match(node, Token.TokenType.RBRACE);
+				node = child(node, TreeNode.Label.elseifstat);
+				continue;
+			case RBRACE:
+			case SEMICOLON:
+			case TYPE:
+			case PRINT:
+			case WHILE:
+			case FOR:
+			case IF:
+			case ID:
+			case EOF:
+				epsilon(node);
+				return;
+			default:
+				throw SyntacticAnalyser.error("No production found for elseifstat with input " + token.getType(), token);
+			}
+		}
+	}
+
+	private void elseorelseif(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case ELSE:
+			match(node, Token.TokenType.ELSE);
+			possif(child(node, TreeNode.Label.possif));
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for elseorelseif with input " + token.getType(), token);
+		}
+	}
+
+	private void possif(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case IF:
+			match(node, Token.TokenType.IF);
+			match(node, Token.TokenType.LPAREN);
+			relexpr(child(node, TreeNode.Label.relexpr));
+			boolexpr(child(node, TreeNode.Label.boolexpr));
+			match(node, Token.TokenType.RPAREN);
+			return;
+		case LBRACE:
+			epsilon(node);
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for possif with input " + token.getType(), token);
+		}
+	}
+
+	private void assign(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case ID:
+			match(node, Token.TokenType.ID);
+			match(node, Token.TokenType.ASSIGN);
+			expr(child(node, TreeNode.Label.expr));
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for assign with input " + token.getType(), token);
+		}
+	}
+
+	private void decl(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case TYPE:
+			type(child(node, TreeNode.Label.type));
+			match(node, Token.TokenType.ID);
+			possassign(child(node, TreeNode.Label.possassign));
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for decl with input " + token.getType(), token);
+		}
+	}
+
+	private void possassign(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case ASSIGN:
+			match(node, Token.TokenType.ASSIGN);
+			expr(child(node, TreeNode.Label.expr));
+			return;
+		case SEMICOLON:
+			epsilon(node);
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for possassign with input " + token.getType(), token);
+		}
+	}
+
+	private void print(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case PRINT:
+			match(node, Token.TokenType.PRINT);
+			match(node, Token.TokenType.LPAREN);
+			printexpr(child(node, TreeNode.Label.printexpr));
+			match(node, Token.TokenType.RPAREN);
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for print with input " + token.getType(), token);
+		}
+	}
+
+	private void type(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case TYPE:
+			match(node, Token.TokenType.TYPE);
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for type with input " + token.getType(), token);
+		}
+	}
+
+	private void expr(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case LPAREN:
+		case ID:
+		case NUM:
+		case TRUE:
+		case FALSE:
+			relexpr(child(node, TreeNode.Label.relexpr));
+			boolexpr(child(node, TreeNode.Label.boolexpr));
+			return;
+		case SQUOTE:
+			charexpr(child(node, TreeNode.Label.charexpr));
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for expr with input " + token.getType(), token);
+		}
+	}
+
+	private void charexpr(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case SQUOTE:
+			match(node, Token.TokenType.SQUOTE);
+			match(node, Token.TokenType.CHARLIT);
+			match(node, Token.TokenType.SQUOTE);
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for charexpr with input " + token.getType(), token);
+		}
+	}
+
+	private void boolexpr(TreeNode node) throws SyntaxException, LexicalException {
+		while (true) {
+			Token token = tokens.peek();
+			switch (token.getType()) {
+			case EQUAL:
+			case NEQUAL:
+			case AND:
+			case OR:
+				boolop(child(node, TreeNode.Label.boolop));
+				relexpr(child(node, TreeNode.Label.relexpr));
+				node = child(node, TreeNode.Label.boolexpr);
+				continue;
+			case RPAREN:
+			case SEMICOLON:
+				epsilon(node);
+				return;
+			default:
+				throw SyntacticAnalyser.error("No production found for boolexpr with input " + token.getType(), token);
+			}
+		}
+	}
+
+	private void boolop(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case EQUAL:
+		case NEQUAL:
+			booleq(child(node, TreeNode.Label.booleq));
+			return;
+		case AND:
+		case OR:
+			boollog(child(node, TreeNode.Label.boollog));
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for boolop with input " + token.getType(), token);
+		}
+	}
+
+	private void booleq(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case EQUAL:
+			match(node, Token.TokenType.EQUAL);
+			return;
+		case NEQUAL:
+			match(node, Token.TokenType.NEQUAL);
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for booleq with input " + token.getType(), token);
+		}
+	}
+
+	private void boollog(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case AND:
+			match(node, Token.TokenType.AND);
+			return;
+		case OR:
+			match(node, Token.TokenType.OR);
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for boollog with input " + token.getType(), token);
+		}
+	}
+
+	private void relexpr(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case LPAREN:
+		case ID:
+		case NUM:
+			arithexpr(child(node, TreeNode.Label.arithexpr));
+			relexprprime(child(node, TreeNode.Label.relexprprime));
+			return;
+		case TRUE:
+			match(node, Token.TokenType.TRUE);
+			return;
+		case FALSE:
+			match(node, Token.TokenType.FALSE);
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for relexpr with input " + token.getType(), token);
+		}
+	}
+
+	private void relexprprime(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case LT:
+		case LE:
+		case GT:
+		case GE:
+			relop(child(node, TreeNode.Label.relop));
+			arithexpr(child(node, TreeNode.Label.arithexpr));
+			return;
+		case EQUAL:
+		case NEQUAL:
+		case RPAREN:
+		case AND:
+		case OR:
+		case SEMICOLON:
+			epsilon(node);
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for relexprprime with input " + token.getType(), token);
+		}
+	}
+
+	private void relop(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case LT:
+			match(node, Token.TokenType.LT);
+			return;
+		case LE:
+			match(node, Token.TokenType.LE);
+			return;
+		case GT:
+			match(node, Token.TokenType.GT);
+			return;
+		case GE:
+			match(node, Token.TokenType.GE);
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for relop with input " + token.getType(), token);
+		}
+	}
+
+	private void arithexpr(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case LPAREN:
+		case ID:
+		case NUM:
+			term(child(node, TreeNode.Label.term));
+			arithexprprime(child(node, TreeNode.Label.arithexprprime));
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for arithexpr with input " + token.getType(), token);
+		}
+	}
+
+	private void arithexprprime(TreeNode node) throws SyntaxException, LexicalException {
+		while (true) {
+			Token token = tokens.peek();
+			switch (token.getType()) {
+			case PLUS:
+				match(node, Token.TokenType.PLUS);
+				term(child(node, TreeNode.Label.term));
+				node = child(node, TreeNode.Label.arithexprprime);
+				continue;
+			case MINUS:
+				match(node, Token.TokenType.MINUS);
+				term(child(node, TreeNode.Label.term));
+				node = child(node, TreeNode.Label.arithexprprime);
+				continue;
+			case EQUAL:
+			case NEQUAL:
+			case LT:
+			case LE:
+			case GT:
+			case GE:
+			case RPAREN:
+			case AND:
+			case OR:
+			case SEMICOLON:
+				epsilon(node);
+				return;
+			default:
+				throw SyntacticAnalyser.error("No production found for arithexprprime with input " + token.getType(), token);
+			}
+		}
+	}
+
+	private void term(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case LPAREN:
+		case ID:
+		case NUM:
+			factor(child(node, TreeNode.Label.factor));
+			termprime(child(node, TreeNode.Label.termprime));
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for term with input " + token.getType(), token);
+		}
+	}
+
+	private void termprime(TreeNode node) throws SyntaxException, LexicalException {
+		while (true) {
+			Token token = tokens.peek();
+			switch (token.getType()) {
+			case TIMES:
+				match(node, Token.TokenType.TIMES);
+				factor(child(node, TreeNode.Label.factor));
+				node = child(node, TreeNode.Label.termprime);
+				continue;
+			case DIVIDE:
+				match(node, Token.TokenType.DIVIDE);
+				factor(child(node, TreeNode.Label.factor));
+				node = child(node, TreeNode.Label.termprime);
+				continue;
+			case MOD:
+				match(node, Token.TokenType.MOD);
+				factor(child(node, TreeNode.Label.factor));
+				node = child(node, TreeNode.Label.termprime);
+				continue;
+			case PLUS:
+			case MINUS:
+			case EQUAL:
+			case NEQUAL:
+			case LT:
+			case LE:
+			case GT:
+			case GE:
+			case RPAREN:
+			case AND:
+			case OR:
+			case SEMICOLON:
+				epsilon(node);
+				return;
+			default:
+				throw SyntacticAnalyser.error("No production found for termprime with input " + token.getType(), token);
+			}
+		}
+	}
+
+	private void factor(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case LPAREN:
+			match(node, Token.TokenType.LPAREN);
+			arithexpr(child(node, TreeNode.Label.arithexpr));
+			match(node, Token.TokenType.RPAREN);
+			return;
+		case ID:
+			match(node, Token.TokenType.ID);
+			return;
+		case NUM:
+			match(node, Token.TokenType.NUM);
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for factor with input " + token.getType(), token);
+		}
+	}
+
+	private void printexpr(TreeNode node) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		switch (token.getType()) {
+		case LPAREN:
+		case ID:
+		case NUM:
+		case TRUE:
+		case FALSE:
+			relexpr(child(node, TreeNode.Label.relexpr));
+			boolexpr(child(node, TreeNode.Label.boolexpr));
+			return;
+		case DQUOTE:
+			match(node, Token.TokenType.DQUOTE);
+			match(node, Token.TokenType.STRINGLIT);
+			match(node, Token.TokenType.DQUOTE);
+			return;
+		default:
+			throw SyntacticAnalyser.error("No production found for printexpr with input " + token.getType(), token);
+		}
+	}
+
+	private void match(TreeNode parent, Token.TokenType expected) throws SyntaxException, LexicalException {
+		Token token = tokens.peek();
+		if (token.getType() != expected)
+			throw SyntacticAnalyser.error("Expected " + expected + " but found " + token.getType(), token);
+		child(parent, TreeNode.Label.terminal).setToken(tokens.next());
+	}
+
+	private static void epsilon(TreeNode parent) {
+		child(parent, TreeNode.Label.epsilon);
+	}
+
+	private static TreeNode child(TreeNode parent, TreeNode.Label label) {
+		TreeNode child = new TreeNode(label, parent);
+		parent.addChild(child);
+		return child;
+	}
+
+}
@@ -0,0 +1,31 @@
+import java.io.Writer;
+
+// Measures rendering parse trees to text: the original recursive toString on a
+// small tree, then the iterative renderer on trees of millions of nodes, from
+// TreeNode graphs and straight from CompactParseTree.
+public class RenderBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		String small = Benchmark.program(16 * 1024);
+		ParseTree smallTree = SyntacticAnalyser.parse(LexicalAnalyser.stream(small));
+		Benchmark.run("16KB recursive toString", small.length(), smallTree::toStringLegacy);
+		Benchmark.run("16KB iterative toString", small.length(), smallTree::toString);
+
+		for (int size : new int[] { 1024 * 1024, 4 * 1024 * 1024 }) {
+			String source = Benchmark.program(size);
+			ParseTree tree = SyntacticAnalyser.parse(LexicalAnalyser.stream(source));
+			CompactParseTree compact = SyntacticAnalyser.parseCompact(LexicalAnalyser.tokenise(source));
+			String label = (size / 1024) + "KB (" + compact.size() + " nodes) ";
+
+			Benchmark.run(label + "render TreeNode", source.length(), () -> {
+				tree.render(Writer.nullWriter());
+				return tree;
+			});
+			Benchmark.run(label + "render compact", source.length(), () -> {
+				compact.render(Writer.nullWriter());
+				return compact;
+			});
+		}
+	}
+
+}
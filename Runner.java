@@ -1,8 +1,16 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 
 public class Runner {
 
 	public static void main(String[] args) {
+		if (args.length > 0) {
+			for (String file : args)
+				parseFile(Paths.get(file));
+			return;
+		}
 		try {
 			List<Token> results = LexicalAnalyser.analyse("public class Test { public static void main(String[] args){ }}");
 			System.out.println(results);
@@ -16,4 +24,17 @@ public class Runner {
 
 	}
 
+	private static void parseFile(Path file) {
+		try {
+			ParseTree tree = SyntacticAnalyser.parse(LexicalAnalyser.stream(file));
+			System.out.println(tree);
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (LexicalException e) {
+			e.printStackTrace();
+		} catch (SyntaxException e) {
+			e.printStackTrace();
+		}
+	}
+
 }
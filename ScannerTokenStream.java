@@ -0,0 +1,31 @@
+// Lexes lazily, so a syntax error is reported without scanning the rest of the input
+class ScannerTokenStream implements TokenStream {
+
+	private final LexicalScanner scanner;
+	private final Token eof;
+	private Token lookahead;
+
+	public ScannerTokenStream(LexicalScanner scanner) {
+		this.scanner = scanner;
+		this.eof = scanner.eof();
+	}
+
+	@Override
+	public Token peek() throws LexicalException {
+		if (lookahead == null) {
+			lookahead = scanner.next();
+			if (lookahead == null)
+				lookahead = eof;
+		}
+		return lookahead;
+	}
+
+	@Override
+	public Token next() throws LexicalException {
+		Token token = peek();
+		if (token != eof)
+			lookahead = null;
+		return token;
+	}
+
+}
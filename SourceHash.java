@@ -0,0 +1,80 @@
+// A 128-bit hash of a source's characters, which ParseCache uses only to pick
+// the entry to look at; whether it is a hit is decided by comparing the text
+// the entry keeps. Two lanes of multiply-rotate mixing take four characters
+// per step and are finished with the MurmurHash3 finaliser. It makes no claim
+// against deliberate collisions, which cost a parse rather than a wrong tree.
+final class SourceHash {
+
+	private static final long M1 = 0x9E3779B97F4A7C15L;
+	private static final long M2 = 0xC2B2AE3D27D4EB4FL;
+
+	private final long high;
+	private final long low;
+
+	private SourceHash(long high, long low) {
+		this.high = high;
+		this.low = low;
+	}
+
+	static SourceHash of(CharSequence source) {
+		int length = source.length();
+		long h1 = 0x243F6A8885A308D3L ^ length;
+		long h2 = 0x13198A2E03707344L;
+		int i = 0;
+		for (; i + 4 <= length; i += 4) {
+			long word = source.charAt(i) | (long) source.charAt(i + 1) << 16 | (long) source.charAt(i + 2) << 32
+					| (long) source.charAt(i + 3) << 48;
+			h1 = Long.rotateLeft(h1 ^ word * M1, 31) * M2;
+			h2 = Long.rotateLeft(h2 + word * M2, 27) * M1 + h1;
+		}
+		long tail = 0;
+		for (int shift = 0; i < length; i++, shift += 16)
+			tail |= (long) source.charAt(i) << shift;
+		h1 = Long.rotateLeft(h1 ^ tail * M1, 31) * M2;
+		h2 = Long.rotateLeft(h2 + tail * M2, 27) * M1 + h1;
+		h1 = finish(h1 + h2);
+		h2 = finish(h2 ^ length) + h1;
+		return new SourceHash(h1, h2);
+	}
+
+	// A hash read back from storage
+	static SourceHash of(long high, long low) {
+		return new SourceHash(high, low);
+	}
+
+	private static long finish(long h) {
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	long getHigh() {
+		return this.high;
+	}
+
+	long getLow() {
+		return this.low;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof SourceHash))
+			return false;
+		SourceHash that = (SourceHash) other;
+		return high == that.high && low == that.low;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) low;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%016x%016x", high, low);
+	}
+
+}
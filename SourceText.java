@@ -0,0 +1,135 @@
+// The text being lexed together with what every token viewing it shares: the
+// line map for positions and the pool that canonicalises identifier and
+// literal text. One instance per lexed source.
+public class SourceText {
+
+	private CharSequence chars;
+	private LineMap lines;
+	private final LexemePool pool;
+	// Set before the text is handed to more than one caller, e.g. by a cache,
+	// after which it can no longer be edited
+	private boolean shared;
+
+	// Set once an edit has replaced this text, and never written after. A token
+	// viewing this text reads its position in the successor, shifted by the delta
+	// if it starts at or after the end of the edited span, unless it overlaps
+	// the span: such a token has no place in the new text and stays here. For
+	// it the text keeps just the characters from base on, and the line and
+	// column at base, instead of the whole text and its line map.
+	private SourceText successor;
+	private int editOffset;
+	private int editEnd;
+	private int editDelta;
+	private int base;
+	private int baseLine;
+	private int baseColumn;
+
+	public SourceText(CharSequence chars, LineMap lines, LexemePool pool) {
+		this.chars = chars;
+		this.lines = lines;
+		this.pool = pool;
+	}
+
+	// Applies the edit, giving the text that supersedes this one. Only the span
+	// from..to, which must hold every token that overlaps the edit, is kept
+	// here; the rest of the text and the line map are released.
+	SourceText edit(TextEdit edit, String edited, int from, int to) {
+		if (shared)
+			throw new IllegalStateException("A shared text cannot be edited");
+		SourceText next = new SourceText(edited, lines != null ? lines.edit(edit, edited) : null, pool);
+		this.editOffset = edit.getOffset();
+		this.editEnd = edit.getOffset() + edit.getRemovedLength();
+		this.editDelta = edit.delta();
+		this.baseLine = lines != null ? lines.line(from) : -1;
+		this.baseColumn = lines != null ? lines.column(from) : -1;
+		this.chars = chars.subSequence(from, to).toString();
+		this.base = from;
+		this.lines = null;
+		this.successor = next;
+		return next;
+	}
+
+	void share() {
+		shared = true;
+	}
+
+	boolean isShared() {
+		return this.shared;
+	}
+
+	SourceText getSuccessor() {
+		return this.successor;
+	}
+
+	int getEditOffset() {
+		return this.editOffset;
+	}
+
+	int getEditEnd() {
+		return this.editEnd;
+	}
+
+	int getEditDelta() {
+		return this.editDelta;
+	}
+
+	public CharSequence getChars() {
+		return this.chars;
+	}
+
+	// Null when positions are not tracked
+	public LineMap getLines() {
+		return this.lines;
+	}
+
+	public int length() {
+		return base + chars.length();
+	}
+
+	public char charAt(int index) {
+		return chars.charAt(index - base);
+	}
+
+	public String text(int start, int end) {
+		return chars.subSequence(start - base, end - base).toString();
+	}
+
+	// Pooled when a pool is configured, otherwise a fresh copy
+	public String lexeme(int start, int end) {
+		return pool != null ? pool.intern(chars, start - base, end - base) : text(start, end);
+	}
+
+	// 1-based line of the offset, from the line map or, once an edit has
+	// replaced this text, by counting line breaks from base; -1 when positions
+	// are not tracked
+	int line(int offset) {
+		if (lines != null)
+			return lines.line(offset);
+		if (baseLine < 0)
+			return -1;
+		int line = baseLine;
+		for (int i = base; i < offset; i++)
+			if (isLineBreak(i))
+				line++;
+		return line;
+	}
+
+	int column(int offset) {
+		if (lines != null)
+			return lines.column(offset);
+		if (baseLine < 0)
+			return -1;
+		int lineStart = -1;
+		for (int i = base; i < offset; i++)
+			if (isLineBreak(i))
+				lineStart = i + 1;
+		return lineStart < 0 ? baseColumn + offset - base : offset - lineStart + 1;
+	}
+
+	// As LineMap counts them: "\r\n" is one break, at the '\n'
+	private boolean isLineBreak(int index) {
+		char c = charAt(index);
+		return c == '\n' || c == '\r' && (index + 1 >= length() || charAt(index + 1) != '\n');
+	}
+
+}
@@ -2,16 +2,369 @@ import java.util.*;
 
 public class SyntacticAnalyser {
 
-    private static Map<Pair<Symbol, Token.TokenType>, List<Symbol>> parsingTable = new HashMap<>();
+    // Generated from SimpleJava.grammar by Grammar and decoded at class load.
+    // Neither is written afterwards, so parses on any number of threads share them.
+    private static final ParsingTable TABLE = ParsingTable.fromSnapshot();
+    private static final long[] FOLLOW = ParsingTable.followSets();
+
+    // The original hand-written table, only built when parseLegacy or a check
+    // against the generated table needs it
+    private static final class HandWrittenTable {
+        static final Map<Pair<Symbol, Token.TokenType>, List<Symbol>> ENTRIES = initialiseParsingTable();
+    }
+
+    static ParsingTable table() {
+        return TABLE;
+    }
 
-    static {
-        initialiseParsingTable();
+    static Map<Pair<Symbol, Token.TokenType>, List<Symbol>> handWrittenTable() {
+        return HandWrittenTable.ENTRIES;
     }
 
     public static ParseTree parse(List<Token> tokens) throws SyntaxException {
-        // Prepare the tokens list, adding an EOF token at the end
-        List<Token> inputTokens = new ArrayList<>(tokens);
-        inputTokens.add(new Token(Token.TokenType.EOF));  // Assuming EOF is defined in TokenType
+        try {
+            return parse(TokenStream.of(tokens));
+        } catch (LexicalException e) {
+            // A list-backed stream has already been lexed and never throws
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static ParseTree parse(List<Token> tokens, ParserEngine engine) throws SyntaxException {
+        try {
+            return parse(TokenStream.of(tokens), engine);
+        } catch (LexicalException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static ParseTree parse(TokenStream tokens, ParserEngine engine) throws SyntaxException, LexicalException {
+        switch (engine) {
+        case RECURSIVE_DESCENT:
+            return RecursiveDescentParser.parse(tokens);
+        default:
+            return parse(tokens);
+        }
+    }
+
+    // Pulls tokens as they are needed, so the first syntax error is reported
+    // without lexing the rest of the input
+    public static ParseTree parse(TokenStream tokens) throws SyntaxException, LexicalException {
+        if (ParseStats.ENABLED) {
+            return parse(tokens, new ParseStats());
+        }
+        ParseTreeBuilder builder = new ParseTreeBuilder();
+        parse(tokens, builder);
+        return builder.getTree();
+    }
+
+    // Adds the parse's counters and timings to stats, which may already hold
+    // the lexer's, and emits a simplejava.Parse JFR event and adds this call's
+    // numbers alone to ParseMetrics.global(), whether or not the parse succeeds.
+    // Time spent waiting on a lazily lexing stream counts as lexing.
+    public static ParseTree parse(TokenStream tokens, ParseStats stats) throws SyntaxException, LexicalException {
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        TimedTokenStream timed = tokens instanceof ScannerTokenStream ? new TimedTokenStream(tokens) : null;
+        ParseTreeBuilder builder = new ParseTreeBuilder();
+        ParseStats call = new ParseStats();
+        long start = System.nanoTime();
+        boolean parsed = false;
+        try {
+            parse(timed != null ? timed : tokens, builder, TreeNode.Label.prog, call, null);
+            parsed = true;
+        } finally {
+            call.lexNanos = timed != null ? timed.nanos : 0;
+            call.parseNanos = System.nanoTime() - start - call.lexNanos;
+            call.failed = !parsed;
+            stats.add(call);
+            ParseMetrics.global().record(call);
+            event.end();
+            if (event.shouldCommit()) {
+                event.set(call);
+                event.commit();
+            }
+        }
+        return builder.getTree();
+    }
+
+    // Times the underlying stream
+    private static final class TimedTokenStream implements TokenStream {
+
+        private final TokenStream tokens;
+        long nanos;
+
+        TimedTokenStream(TokenStream tokens) {
+            this.tokens = tokens;
+        }
+
+        @Override
+        public Token peek() throws LexicalException {
+            long start = System.nanoTime();
+            try {
+                return tokens.peek();
+            } finally {
+                nanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public Token next() throws LexicalException {
+            long start = System.nanoTime();
+            try {
+                return tokens.next();
+            } finally {
+                nanos += System.nanoTime() - start;
+            }
+        }
+    }
+
+    // Runs the parse as a stream of events to the listener without building a
+    // tree. Each expanded non-terminal leaves an exit marker (~id) under its
+    // right-hand side; a marker landing on one for the same non-terminal bumps
+    // its repeat count instead, so right-recursive chains such as los -> stat los
+    // keep the stack as deep as the nesting rather than the statement count.
+    public static void parse(TokenStream tokens, ParseListener listener) throws SyntaxException, LexicalException {
+        parse(tokens, listener, TreeNode.Label.prog);
+    }
+
+    // Parses the tokens as a single start symbol followed by EOF
+    static void parse(TokenStream tokens, ParseListener listener, TreeNode.Label start) throws SyntaxException, LexicalException {
+        parse(tokens, listener, start, null, null);
+    }
+
+    // Counts into locals, which cost next to nothing, and only writes them out
+    // when there are stats to fill in; the token count is the terminals matched
+    // plus the lookahead the parse ended on, EOF when it succeeds. Without a recovery the first error is
+    // thrown; with one each error is handed to it and the parse carries on.
+    private static void parse(TokenStream tokens, ParseListener listener, TreeNode.Label start, ParseStats stats, Recovery recovery)
+            throws SyntaxException, LexicalException {
+        int[] symbols = new int[64];
+        int[] repeats = new int[64];
+        int top = 0;
+        long lookups = 0;
+        long terminals = 0;
+        long nodes = 0;
+        int maxTop = 0;
+        boolean lexFailed = false;
+
+        symbols[top++] = ParsingTable.id(start);
+
+        try {
+            while (top > 0) {
+                int symbol = symbols[--top];
+
+                if (symbol < 0) {
+                    if (top == 0 && recovery != null) {
+                        recovery.extraTokens(tokens);
+                    }
+                    listener.exitNonTerminal(ParsingTable.label(~symbol));
+                    if (--repeats[top] > 0) {
+                        top++;
+                    }
+                    continue;
+                }
+
+                Token currentToken = tokens.peek();
+
+                if (ParsingTable.isTerminal(symbol)) {
+                    if (symbol == currentToken.getType().ordinal()) {
+                        listener.terminal(tokens.next());
+                        terminals++;
+                    } else if (recovery != null) {
+                        recovery.missingTerminal(symbol, currentToken);
+                    } else {
+                        throw error("Expected " + ParsingTable.symbol(symbol) + " but found " + currentToken.getType(), currentToken);
+                    }
+                } else {
+                    int production = TABLE.production(symbol, currentToken.getType());
+                    lookups++;
+                    if (production < 0) {
+                        if (recovery == null) {
+                            throw error("No production found for " + ParsingTable.symbol(symbol) + " with input " + currentToken.getType(), currentToken);
+                        }
+                        production = recovery.resynchronise(symbol, tokens);
+                        if (production < 0) {
+                            continue;
+                        }
+                    }
+
+                    TreeNode.Label label = ParsingTable.label(symbol);
+                    listener.enterNonTerminal(label);
+                    nodes++;
+                    int[] rhs = TABLE.rhs(production);
+                    if (ParsingTable.isEpsilon(rhs)) {
+                        listener.enterNonTerminal(TreeNode.Label.epsilon);
+                        listener.exitNonTerminal(TreeNode.Label.epsilon);
+                        listener.exitNonTerminal(label);
+                        nodes++;
+                        continue;
+                    }
+
+                    if (top + rhs.length + 1 > symbols.length) {
+                        symbols = Arrays.copyOf(symbols, Math.max(symbols.length * 2, top + rhs.length + 1));
+                        repeats = Arrays.copyOf(repeats, symbols.length);
+                    }
+                    if (top > 0 && symbols[top - 1] == ~symbol) {
+                        repeats[top - 1]++;
+                    } else {
+                        symbols[top] = ~symbol;
+                        repeats[top++] = 1;
+                    }
+                    // Pushed in reverse so the leftmost symbol is expanded first
+                    for (int i = rhs.length - 1; i >= 0; i--) {
+                        symbols[top++] = rhs[i];
+                    }
+                    if (top > maxTop) {
+                        maxTop = top;
+                    }
+                }
+            }
+
+            // If all tokens have been consumed and stack is empty, parsing is successful.
+            // A recovery has already dealt with any extra tokens.
+            if (recovery == null && tokens.peek().getType() != Token.TokenType.EOF) {
+                throw error("Extra tokens at the end", tokens.peek());
+            }
+        } catch (LexicalException e) {
+            // The token being read was never produced
+            lexFailed = true;
+            throw e;
+        } finally {
+            if (stats != null) {
+                stats.tokens += terminals + (lexFailed ? 0 : 1);
+                stats.tableLookups += lookups;
+                stats.nodes += nodes + terminals;
+                stats.maxStackDepth = Math.max(stats.maxStackDepth, Math.max(maxTop, 1));
+            }
+        }
+    }
+
+    // Parses the whole input however many syntax errors it has, reporting up to
+    // maxErrors of them. The tree covers every token: where recovery happened it
+    // holds Label.error nodes, empty for a missing terminal or holding the
+    // skipped tokens as terminals otherwise.
+    public static ParseResult parseRecovering(TokenStream tokens, int maxErrors) throws LexicalException {
+        ParseTreeBuilder builder = new ParseTreeBuilder();
+        List<SyntaxException> errors = parseRecovering(tokens, builder, maxErrors);
+        return new ParseResult(builder.getTree(), errors);
+    }
+
+    static List<SyntaxException> parseRecovering(TokenStream tokens, ParseListener listener, int maxErrors) throws LexicalException {
+        Recovery recovery = new Recovery(listener, maxErrors);
+        try {
+            parse(tokens, recovery, TreeNode.Label.prog, null, recovery);
+        } catch (SyntaxException e) {
+            // Every error goes to the recovery and every token is consumed
+            throw new IllegalStateException(e);
+        }
+        return recovery.errors;
+    }
+
+    // Panic-mode recovery for the core loop. A missing terminal is assumed to be
+    // there. A non-terminal with no production for the lookahead skips tokens
+    // until one it can start with, or one in its FOLLOW set or a closing brace,
+    // which the enclosing rules can resynchronise on; a semicolon outside FOLLOW
+    // is skipped too so a broken statement is dropped as a whole. Errors raised
+    // before another token has been matched are cascades of the last one and are
+    // not reported. Every token is consumed or skipped once and each one leads to
+    // a bounded number of expansions, so this stays linear.
+    //
+    // The loop's events pass through it on their way to the listener, so a
+    // matched terminal ends the current recovery; the tokens it skips go
+    // straight to the listener.
+    private static final class Recovery implements ParseListener {
+
+        private final ParseListener listener;
+        private final int maxErrors;
+        final List<SyntaxException> errors = new ArrayList<>();
+        private boolean recovering;
+
+        Recovery(ParseListener listener, int maxErrors) {
+            this.listener = listener;
+            this.maxErrors = maxErrors;
+        }
+
+        @Override
+        public void enterNonTerminal(TreeNode.Label label) {
+            listener.enterNonTerminal(label);
+        }
+
+        @Override
+        public void terminal(Token token) {
+            recovering = false;
+            listener.terminal(token);
+        }
+
+        @Override
+        public void exitNonTerminal(TreeNode.Label label) {
+            listener.exitNonTerminal(label);
+        }
+
+        void missingTerminal(int symbol, Token token) {
+            report("Expected " + ParsingTable.symbol(symbol) + " but found " + token.getType(), token);
+            listener.enterNonTerminal(TreeNode.Label.error);
+            listener.exitNonTerminal(TreeNode.Label.error);
+        }
+
+        // Returns the production to expand symbol with once resynchronised, or -1
+        // once the symbol has been given up on and its parent should carry on
+        int resynchronise(int symbol, TokenStream tokens) throws LexicalException {
+            Token currentToken = tokens.peek();
+            report("No production found for " + ParsingTable.symbol(symbol) + " with input " + currentToken.getType(), currentToken);
+            TreeNode.Label label = ParsingTable.label(symbol);
+            long sync = FOLLOW[label.ordinal()] | 1L << Token.TokenType.RBRACE.ordinal() | 1L << Token.TokenType.EOF.ordinal();
+            int production = -1;
+            boolean skipped = false;
+            while (production < 0 && (sync & 1L << currentToken.getType().ordinal()) == 0) {
+                if (!skipped) {
+                    listener.enterNonTerminal(TreeNode.Label.error);
+                    skipped = true;
+                }
+                listener.terminal(tokens.next());
+                currentToken = tokens.peek();
+                production = TABLE.production(symbol, currentToken.getType());
+            }
+            if (production < 0) {
+                listener.enterNonTerminal(label);
+                if (!skipped) {
+                    listener.enterNonTerminal(TreeNode.Label.error);
+                }
+                listener.exitNonTerminal(TreeNode.Label.error);
+                listener.exitNonTerminal(label);
+            } else if (skipped) {
+                listener.exitNonTerminal(TreeNode.Label.error);
+            }
+            return production;
+        }
+
+        // Called on leaving the start symbol: anything still unread is extra
+        void extraTokens(TokenStream tokens) throws LexicalException {
+            if (tokens.peek().getType() == Token.TokenType.EOF) {
+                return;
+            }
+            report("Extra tokens at the end", tokens.peek());
+            listener.enterNonTerminal(TreeNode.Label.error);
+            while (tokens.peek().getType() != Token.TokenType.EOF) {
+                listener.terminal(tokens.next());
+            }
+            listener.exitNonTerminal(TreeNode.Label.error);
+        }
+
+        // An ERROR token from a tolerant lexer has already been reported as a
+        // lexical error
+        private void report(String message, Token token) {
+            if (!recovering && errors.size() < maxErrors && token.getType() != Token.TokenType.ERROR) {
+                errors.add(error(message, token));
+            }
+            recovering = true;
+        }
+    }
+
+    // The original automaton driven by the HashMap table, kept for comparison
+    // against the dense table
+    static ParseTree parseLegacy(List<Token> list) throws SyntaxException {
+        ListTokenStream tokens = new ListTokenStream(list);
 
         // Initialise stack with start symbol and root TreeNode
         Deque<Pair<Symbol, TreeNode>> stack = new ArrayDeque<>();
@@ -22,27 +375,24 @@ public class SyntacticAnalyser {
         // Push the starting symbol onto the stack
         stack.push(new Pair<>(TreeNode.Label.prog, root));
 
-        int index = 0; // Index into input tokens
-
         while (!stack.isEmpty()) {
             Pair<Symbol, TreeNode> top = stack.pop();
             Symbol symbol = top.fst();
             TreeNode node = top.snd();
 
-            Token currentToken = inputTokens.get(index);
+            Token currentToken = tokens.peek();
 
             if (!symbol.isVariable()) { // Terminal
 				if (symbol.equals(currentToken.getType())) {
 					// Assign the token directly to the node
-					node.setToken(currentToken);
-					index++;
+					node.setToken(tokens.next());
 				} else {
 					// Error: terminal symbol mismatch
-					throw new SyntaxException("Expected " + symbol + " but found " + currentToken.getType());
+					throw error("Expected " + symbol + " but found " + currentToken.getType(), currentToken);
 				}
             } else { // Non-terminal
                 Pair<Symbol, Token.TokenType> key = new Pair<>(symbol, currentToken.getType());
-                List<Symbol> production = parsingTable.get(key);
+                List<Symbol> production = HandWrittenTable.ENTRIES.get(key);
 
                 if (production != null) {
                     // For epsilon production, add epsilon node
@@ -75,23 +425,181 @@ public class SyntacticAnalyser {
                     }
                 } else {
                     // Error: no production found in parsing table
-                    throw new SyntaxException("No production found for " + symbol + " with input " + currentToken.getType());
+                    throw error("No production found for " + symbol + " with input " + currentToken.getType(), currentToken);
                 }
             }
         }
 
         // If all tokens have been consumed and stack is empty, parsing is successful
-        // Optionally check if all tokens are consumed
-        if (index != inputTokens.size() - 1) { // except EOF
-            throw new SyntaxException("Extra tokens at the end");
+        if (tokens.peek().getType() != Token.TokenType.EOF) {
+            throw error("Extra tokens at the end", tokens.peek());
         }
 
         // Return ParseTree with root node
         return new ParseTree(root);
     }
 
-    private static void initialiseParsingTable() {
+    // Checks the input against the grammar without building a tree: the same
+    // automaton runs over symbol ids alone. Returns normally if the program is
+    // valid and throws the same positioned error parse would otherwise.
+    public static void validate(TokenStream tokens) throws SyntaxException, LexicalException {
+        int[] symbols = new int[64];
+        int top = 0;
+        symbols[top++] = ParsingTable.id(TreeNode.Label.prog);
+
+        while (top > 0) {
+            int symbol = symbols[--top];
+            Token currentToken = tokens.peek();
+
+            if (ParsingTable.isTerminal(symbol)) {
+                if (symbol != currentToken.getType().ordinal()) {
+                    throw error("Expected " + ParsingTable.symbol(symbol) + " but found " + currentToken.getType(), currentToken);
+                }
+                tokens.next();
+            } else {
+                int production = TABLE.production(symbol, currentToken.getType());
+                if (production < 0) {
+                    throw error("No production found for " + ParsingTable.symbol(symbol) + " with input " + currentToken.getType(), currentToken);
+                }
+                int[] rhs = TABLE.rhs(production);
+                if (ParsingTable.isEpsilon(rhs)) {
+                    continue;
+                }
+                if (top + rhs.length > symbols.length) {
+                    symbols = Arrays.copyOf(symbols, Math.max(symbols.length * 2, top + rhs.length));
+                }
+                for (int i = rhs.length - 1; i >= 0; i--) {
+                    symbols[top++] = rhs[i];
+                }
+            }
+        }
+
+        if (tokens.peek().getType() != Token.TokenType.EOF) {
+            throw error("Extra tokens at the end", tokens.peek());
+        }
+    }
+
+    // As above over an already lexed buffer, where no Token is created unless
+    // there is an error to report
+    public static void validate(TokenBuffer tokens) throws SyntaxException {
+        int[] symbols = new int[64];
+        int top = 0;
+        symbols[top++] = ParsingTable.id(TreeNode.Label.prog);
+
+        int position = 0;
+        int count = tokens.size();
+        while (top > 0) {
+            int symbol = symbols[--top];
+            Token.TokenType current = position < count ? tokens.type(position) : Token.TokenType.EOF;
+
+            if (ParsingTable.isTerminal(symbol)) {
+                if (symbol != current.ordinal()) {
+                    throw error("Expected " + ParsingTable.symbol(symbol) + " but found " + current, tokenAt(tokens, position));
+                }
+                position++;
+            } else {
+                int production = TABLE.production(symbol, current);
+                if (production < 0) {
+                    throw error("No production found for " + ParsingTable.symbol(symbol) + " with input " + current, tokenAt(tokens, position));
+                }
+                int[] rhs = TABLE.rhs(production);
+                if (ParsingTable.isEpsilon(rhs)) {
+                    continue;
+                }
+                if (top + rhs.length > symbols.length) {
+                    symbols = Arrays.copyOf(symbols, Math.max(symbols.length * 2, top + rhs.length));
+                }
+                for (int i = rhs.length - 1; i >= 0; i--) {
+                    symbols[top++] = rhs[i];
+                }
+            }
+        }
+
+        if (position < count) {
+            throw error("Extra tokens at the end", tokens.get(position));
+        }
+    }
+
+    // Parses a lexed buffer into an arena-backed tree. Terminals keep the index
+    // of their token rather than a Token object.
+    public static CompactParseTree parseCompact(TokenBuffer tokens) throws SyntaxException {
+        CompactParseTree tree = new CompactParseTree(tokens);
+        int[] symbols = new int[64];
+        int[] nodes = new int[64];
+        int top = 0;
+
+        symbols[top] = ParsingTable.id(TreeNode.Label.prog);
+        nodes[top++] = tree.add(TreeNode.Label.prog, -1, -1);
+
+        int position = 0;
+        int count = tokens.size();
+        while (top > 0) {
+            int symbol = symbols[--top];
+            int node = nodes[top];
+
+            Token.TokenType current = position < count ? tokens.type(position) : Token.TokenType.EOF;
+
+            if (ParsingTable.isTerminal(symbol)) {
+                if (symbol == current.ordinal()) {
+                    tree.setToken(node, position++);
+                } else {
+                    throw error("Expected " + ParsingTable.symbol(symbol) + " but found " + current, tokenAt(tokens, position));
+                }
+            } else {
+                int production = TABLE.production(symbol, current);
+                if (production < 0) {
+                    throw error("No production found for " + ParsingTable.symbol(symbol) + " with input " + current, tokenAt(tokens, position));
+                }
+
+                int[] rhs = TABLE.rhs(production);
+                if (ParsingTable.isEpsilon(rhs)) {
+                    tree.add(TreeNode.Label.epsilon, node, -1);
+                    continue;
+                }
+
+                // Siblings are created together, so the children have consecutive ids
+                int first = -1;
+                int previous = -1;
+                for (int childSymbol : rhs) {
+                    TreeNode.Label label = ParsingTable.isTerminal(childSymbol) ? TreeNode.Label.terminal : ParsingTable.label(childSymbol);
+                    previous = tree.add(label, node, previous);
+                    if (first < 0)
+                        first = previous;
+                }
+                if (top + rhs.length > symbols.length) {
+                    symbols = Arrays.copyOf(symbols, Math.max(symbols.length * 2, top + rhs.length));
+                    nodes = Arrays.copyOf(nodes, symbols.length);
+                }
+                for (int i = rhs.length - 1; i >= 0; i--) {
+                    symbols[top] = rhs[i];
+                    nodes[top++] = first + i;
+                }
+            }
+        }
+
+        if (position < count) {
+            throw error("Extra tokens at the end", tokens.get(position));
+        }
+
+        tree.trim();
+        return tree;
+    }
+
+    // The token at a buffer index, or an EOF token positioned at the end of the source
+    private static Token tokenAt(TokenBuffer tokens, int index) {
+        if (index < tokens.size())
+            return tokens.get(index);
+        int end = tokens.getSource().length();
+        return new Token(Token.TokenType.EOF, tokens.getSource(), end, end);
+    }
+
+    static SyntaxException error(String message, Token token) {
+        return new SyntaxException(message, token.getLine(), token.getColumn());
+    }
+
+    private static Map<Pair<Symbol, Token.TokenType>, List<Symbol>> initialiseParsingTable() {
         // Initialise the parsing table entries based on the provided parsing table
+        Map<Pair<Symbol, Token.TokenType>, List<Symbol>> parsingTable = new HashMap<>();
 
         // Production 1: PROG -> public class ID { public static void main ( String[] args ) { LOS } }
         parsingTable.put(new Pair<>(TreeNode.Label.prog, Token.TokenType.PUBLIC), Arrays.asList(
@@ -383,46 +891,10 @@ public class SyntacticAnalyser {
                 Token.TokenType.STRINGLIT,
                 Token.TokenType.DQUOTE
         ));
-    }
-}
-
-// The following class may be helpful.
-
-class Pair<A, B> {
-    private final A a;
-    private final B b;
-
-    public Pair(A a, B b) {
-        this.a = a;
-        this.b = b;
-    }
-
-    public A fst() {
-        return a;
-    }
 
-    public B snd() {
-        return b;
+        // Read-only once built, so the holder's lazily initialised instance can be
+        // shared between threads
+        parsingTable.replaceAll((key, rhs) -> Collections.unmodifiableList(rhs));
+        return Collections.unmodifiableMap(parsingTable);
     }
-
-    @Override
-    public int hashCode() {
-        return 3 * a.hashCode() + 7 * b.hashCode();
-    }
-
-    @Override
-    public String toString() {
-        return "{" + a + ", " + b + "}";
-    }
-
-    @Override
-    public boolean equals(Object o) {
-        if ((o instanceof Pair<?, ?>)) {
-            Pair<?, ?> other = (Pair<?, ?>) o;
-            return other.fst().equals(a) && other.snd().equals(b);
-        }
-
-        return false;
-    }
-
 }
@@ -1,8 +1,28 @@
 
 public class SyntaxException extends Exception {
 
+	private final int line;
+	private final int column;
+
 	public SyntaxException(String message) {
 		super(message);
+		this.line = -1;
+		this.column = -1;
+	}
+
+	public SyntaxException(String message, int line, int column) {
+		super(line > 0 ? message + " at line " + line + ", column " + column : message);
+		this.line = line;
+		this.column = column;
+	}
+
+	// 1-based position of the error, or -1 when it is not known
+	public int getLine() {
+		return this.line;
+	}
+
+	public int getColumn() {
+		return this.column;
 	}
 
 }
@@ -0,0 +1,19 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Compares the dense int-indexed parsing table against the original HashMap
+// table keyed by Pair, parsing the same pre-lexed tokens.
+public class TableBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		for (int size : new int[] { 16 * 1024, 1024 * 1024 }) {
+			String source = Benchmark.program(size);
+			List<Token> tokens = new ArrayList<>(LexicalAnalyser.analyse(source));
+			String label = (size / 1024) + "KB ";
+
+			Benchmark.run(label + "parse, HashMap table", source.length(), () -> SyntacticAnalyser.parseLegacy(tokens));
+			Benchmark.run(label + "parse, dense table", source.length(), () -> SyntacticAnalyser.parse(tokens));
+		}
+	}
+
+}
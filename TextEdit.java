@@ -0,0 +1,41 @@
+// A change to source text: removedLength characters at offset are replaced by
+// insertedText.
+public class TextEdit {
+
+	private final int offset;
+	private final int removedLength;
+	private final String insertedText;
+
+	public TextEdit(int offset, int removedLength, String insertedText) {
+		if (offset < 0 || removedLength < 0)
+			throw new IllegalArgumentException("Negative offset or length in edit");
+		this.offset = offset;
+		this.removedLength = removedLength;
+		this.insertedText = insertedText;
+	}
+
+	public int getOffset() {
+		return this.offset;
+	}
+
+	public int getRemovedLength() {
+		return this.removedLength;
+	}
+
+	public String getInsertedText() {
+		return this.insertedText;
+	}
+
+	// Change in length the edit makes to the text
+	public int delta() {
+		return insertedText.length() - removedLength;
+	}
+
+	public String apply(CharSequence text) {
+		if (offset + removedLength > text.length())
+			throw new IllegalArgumentException("Edit extends past the end of the text");
+		return new StringBuilder(text.length() + delta()).append(text, 0, offset).append(insertedText)
+				.append(text, offset + removedLength, text.length()).toString();
+	}
+
+}
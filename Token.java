@@ -1,3 +1,4 @@
+import java.util.Objects;
 import java.util.Optional;
 
 public class Token {
@@ -5,7 +6,7 @@ public class Token {
 	public enum TokenType implements Symbol {
 		PLUS, MINUS, TIMES, DIVIDE, MOD, ASSIGN, EQUAL, NEQUAL, LT, LE, GT, GE, LPAREN, RPAREN, LBRACE, RBRACE, AND, OR,
 		SEMICOLON, PUBLIC, CLASS, STATIC, VOID, MAIN, STRINGARR, ARGS, TYPE, PRINT, WHILE, FOR, IF, ELSE, DQUOTE,
-		SQUOTE, ID, NUM, CHARLIT, TRUE, FALSE, STRINGLIT, EOF;
+		SQUOTE, ID, NUM, CHARLIT, TRUE, FALSE, STRINGLIT, ERROR, EOF;
 
 		@Override
 		public boolean isVariable() {
@@ -15,25 +16,185 @@ public class Token {
 	};
 
 	private TokenType type;
-	private Optional<String> value;
+	private String value;
+
+	// Set for tokens that view a span of the source; their value is only
+	// materialised when first asked for
+	private final SourceText source;
+	private final int start;
+	private final int end;
 
 	public Token(TokenType type) {
-		this.type = type;
-		this.value = Optional.empty();
+		this(type, (String) null);
 	}
 
 	public Token(TokenType type, String value) {
 		this.type = type;
-		this.value = Optional.of(value);
+		this.value = value;
+		this.source = null;
+		this.start = 0;
+		this.end = 0;
+	}
+
+	public Token(TokenType type, SourceText source, int start, int end) {
+		this.type = type;
+		this.source = source;
+		this.start = start;
+		this.end = end;
 	}
 
 	public Optional<String> getValue() {
-		return this.value;
+		return Optional.ofNullable(value());
+	}
+
+	private String value() {
+		if (value == null && source != null)
+			value = lexeme();
+		return value;
+	}
+
+	// A token's text, start and end are never written after construction. When
+	// the text has since been edited, where the token is now is found by
+	// following the edits from the last place it was found, which is kept as an
+	// immutable Position; threads racing to update it each compute the same
+	// answer from a consistent snapshot, so a shift is never applied twice. A
+	// token that overlapped an edit stays on the text the edit replaced, which
+	// keeps the characters it needs.
+	private Position position;
+
+	private static final class Position {
+
+		private final SourceText text;
+		private final int start;
+
+		Position(SourceText text, int start) {
+			this.text = text;
+			this.start = start;
+		}
+
+	}
+
+	// Null while the token is still where it was lexed
+	private Position where() {
+		Position known = position;
+		SourceText text = known != null ? known.text : source;
+		if (text.getSuccessor() == null)
+			return known;
+		int at = known != null ? known.start : start;
+		int length = end - start;
+		for (SourceText next; (next = text.getSuccessor()) != null; text = next) {
+			if (at >= text.getEditEnd())
+				at += text.getEditDelta();
+			else if (at + length > text.getEditOffset() || at > text.getEditOffset())
+				break;
+		}
+		Position found = new Position(text, at);
+		position = found;
+		return found;
+	}
+
+	private SourceText current() {
+		Position at = where();
+		return at != null ? at.text : source;
+	}
+
+	// The offset of the start, or the end, in the current text
+	private int offset(boolean ofEnd) {
+		Position at = where();
+		int offset = at != null ? at.start : start;
+		return ofEnd ? offset + (end - start) : offset;
+	}
+
+	// The current text this token views, or null
+	SourceText getSource() {
+		return source != null ? current() : null;
+	}
+
+	private String lexeme() {
+		switch (type) {
+		case ID:
+		case NUM:
+		case CHARLIT:
+		case STRINGLIT:
+		case ERROR: {
+			int at = offset(false);
+			return current().lexeme(at, at + (end - start));
+		}
+		case TYPE:
+			switch (current().charAt(offset(false))) {
+			case 'i':
+				return "int";
+			case 'c':
+				return "char";
+			default:
+				return "boolean";
+			}
+		default:
+			return spelling(type);
+		}
+	}
+
+	// Fixed spellings are shared literals rather than copies of the source
+	static String spelling(TokenType type) {
+		switch (type) {
+		case PLUS: return "+";
+		case MINUS: return "-";
+		case TIMES: return "*";
+		case DIVIDE: return "/";
+		case MOD: return "%";
+		case ASSIGN: return "=";
+		case EQUAL: return "==";
+		case NEQUAL: return "!=";
+		case LT: return "<";
+		case LE: return "<=";
+		case GT: return ">";
+		case GE: return ">=";
+		case LPAREN: return "(";
+		case RPAREN: return ")";
+		case LBRACE: return "{";
+		case RBRACE: return "}";
+		case AND: return "&&";
+		case OR: return "||";
+		case SEMICOLON: return ";";
+		case PUBLIC: return "public";
+		case CLASS: return "class";
+		case STATIC: return "static";
+		case VOID: return "void";
+		case MAIN: return "main";
+		case STRINGARR: return "String[]";
+		case ARGS: return "args";
+		case PRINT: return "System.out.println";
+		case WHILE: return "while";
+		case FOR: return "for";
+		case IF: return "if";
+		case ELSE: return "else";
+		case TRUE: return "true";
+		case FALSE: return "false";
+		default: return null; // quotes and EOF carry no value
+		}
 	}
 
 	public TokenType getType() {
 		return this.type;
 	}
+
+	// Offsets into the source, or -1 for tokens not produced by the lexer
+	public int getOffset() {
+		return source != null ? offset(false) : -1;
+	}
+
+	public int getEndOffset() {
+		return source != null ? offset(true) : -1;
+	}
+
+	// 1-based, derived from the lexer's line map; -1 when unknown
+	public int getLine() {
+		return source != null ? current().line(offset(false)) : -1;
+	}
+
+	public int getColumn() {
+		return source != null ? current().column(offset(false)) : -1;
+	}
 	
 	@Override
 	public String toString() {
@@ -42,7 +203,8 @@ public class Token {
 		case NUM :
 		case CHARLIT :
 		case TYPE :
-		case STRINGLIT : return "[" + type + ": " + value + "]";
+		case STRINGLIT :
+		case ERROR : return "[" + type + ": " + getValue() + "]";
 		default : return "[" + type + "]";
 		}
 	}
@@ -56,9 +218,7 @@ public class Token {
 		
 		if (t.type != this.type) return false;
 		
-		if (t.value == null || this.value == null) return t.value == this.value;
-		
-		return t.value.equals(this.value);
+		return Objects.equals(t.value(), this.value());
 	}	
 
 }
@@ -0,0 +1,95 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+// Compact token storage as parallel primitive arrays: the type ordinal and the
+// start and end offsets of each token in the source. Token objects are only
+// created as views when a caller asks for one, and their text only when
+// getValue() is called.
+public class TokenBuffer {
+
+	private static final Token.TokenType[] TYPES = Token.TokenType.values();
+
+	private final SourceText source;
+	private byte[] types;
+	private int[] starts;
+	private int[] ends;
+	private int size;
+
+	public TokenBuffer(SourceText source) {
+		this.source = source;
+		// Roughly one token per five characters of typical source
+		int capacity = Math.max(16, source.length() / 5);
+		this.types = new byte[capacity];
+		this.starts = new int[capacity];
+		this.ends = new int[capacity];
+		this.size = 0;
+	}
+
+	public void add(Token.TokenType type, int start, int end) {
+		if (size == types.length) {
+			int capacity = size + (size >> 1) + 1;
+			types = Arrays.copyOf(types, capacity);
+			starts = Arrays.copyOf(starts, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+		}
+		types[size] = (byte) type.ordinal();
+		starts[size] = start;
+		ends[size] = end;
+		size++;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public SourceText getSource() {
+		return this.source;
+	}
+
+	public Token.TokenType type(int index) {
+		return TYPES[types[index]];
+	}
+
+	public int start(int index) {
+		return starts[index];
+	}
+
+	public int end(int index) {
+		return ends[index];
+	}
+
+	public Token get(int index) {
+		if (index >= size)
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+		return new Token(TYPES[types[index]], source, starts[index], ends[index]);
+	}
+
+	// Rough heap held by the buffer and its source text, assuming the text is a
+	// String of one byte per character, for caches that weigh their entries
+	long retainedBytes() {
+		LineMap lines = source.getLines();
+		return 32 + 3 * 16 + 9L * types.length + 64 + (source.getChars() != null ? 56 + source.length() : 0)
+				+ (lines != null ? lines.retainedBytes() : 0);
+	}
+
+	public List<Token> asList() {
+		return new TokenList();
+	}
+
+	private class TokenList extends AbstractList<Token> implements RandomAccess {
+
+		@Override
+		public Token get(int index) {
+			return TokenBuffer.this.get(index);
+		}
+
+		@Override
+		public int size() {
+			return TokenBuffer.this.size;
+		}
+
+	}
+
+}
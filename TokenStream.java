@@ -0,0 +1,19 @@
+import java.util.List;
+
+// Pull-based token source with the single token of lookahead that the LL(1)
+// parser needs. Once the input is exhausted every call returns an EOF token.
+public interface TokenStream {
+
+	Token peek() throws LexicalException;
+
+	Token next() throws LexicalException;
+
+	static TokenStream of(List<Token> tokens) {
+		return new ListTokenStream(tokens);
+	}
+
+	static TokenStream of(LexicalScanner scanner) {
+		return new ScannerTokenStream(scanner);
+	}
+
+}
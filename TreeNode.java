@@ -1,4 +1,5 @@
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -7,7 +8,7 @@ class TreeNode {
 	public enum Label implements Symbol {
 		prog, los, stat, whilestat, forstat, forstart, forarith, ifstat, elseifstat, elseorelseif, possif, assign, decl,
 		possassign, print, type, expr, boolexpr, boolop, booleq, boollog, relexpr, relexprprime, relop, arithexpr,
-		arithexprprime, term, termprime, factor, printexpr, charexpr, epsilon, terminal;
+		arithexprprime, term, termprime, factor, printexpr, charexpr, epsilon, terminal, error;
 
 		@Override
 		public boolean isVariable() {
@@ -20,6 +21,7 @@ class TreeNode {
 	private Optional<Token> token;
 	private TreeNode parent;
 	private List<TreeNode> children;
+	private boolean frozen;
 
 	public TreeNode(Label label, TreeNode parent) {
 		this.label = label;
@@ -40,6 +42,7 @@ class TreeNode {
 	}
 
 	public void setToken(Token token) {
+		checkNotFrozen();
     	this.token = Optional.of(token);
 	}
 
@@ -47,6 +50,29 @@ class TreeNode {
 		return this.token;
 	}
 
+	void setParent(TreeNode parent) {
+		checkNotFrozen();
+		this.parent = parent;
+	}
+
+	// Makes the subtree read-only, for a graph shared between callers: child
+	// lists become unmodifiable and the setters throw
+	void freeze() {
+		List<TreeNode> pending = new ArrayList<>();
+		pending.add(this);
+		while (!pending.isEmpty()) {
+			TreeNode node = pending.remove(pending.size() - 1);
+			pending.addAll(node.children);
+			node.children = node.children.isEmpty() ? List.of() : Collections.unmodifiableList(node.children);
+			node.frozen = true;
+		}
+	}
+
+	private void checkNotFrozen() {
+		if (frozen)
+			throw new UnsupportedOperationException("A shared tree cannot be modified");
+	}
+
 	public TreeNode getParent() {
 		return this.parent;
 	}
@@ -59,6 +85,30 @@ class TreeNode {
 		return this.label;
 	}
 
+	// Source span covered by the node's tokens, found by walking to its first and
+	// last terminals; -1 when the subtree holds no tokens (e.g. only epsilon)
+	public int getStartOffset() {
+		if (token.isPresent())
+			return token.get().getOffset();
+		for (TreeNode child : children) {
+			int offset = child.getStartOffset();
+			if (offset >= 0)
+				return offset;
+		}
+		return -1;
+	}
+
+	public int getEndOffset() {
+		if (token.isPresent())
+			return token.get().getEndOffset();
+		for (int i = children.size() - 1; i >= 0; i--) {
+			int offset = children.get(i).getEndOffset();
+			if (offset >= 0)
+				return offset;
+		}
+		return -1;
+	}
+
 	@Override
 	public String toString() {
 		return "[" + this.label + ", " + this.token + "]";
@@ -0,0 +1,30 @@
+// Compares full parsing with recognition only, over a token list, a lexed
+// buffer and straight from the source.
+public class ValidateBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		for (int size : new int[] { 64 * 1024, 1024 * 1024 }) {
+			String source = Benchmark.program(size);
+			TokenBuffer tokens = LexicalAnalyser.tokenise(source);
+			String label = (size / 1024) + "KB ";
+
+			Benchmark.run(label + "parse tokens", source.length(),
+					() -> SyntacticAnalyser.parse(TokenStream.of(tokens.asList())));
+			Benchmark.run(label + "validate tokens", source.length(), () -> {
+				SyntacticAnalyser.validate(TokenStream.of(tokens.asList()));
+				return tokens;
+			});
+			Benchmark.run(label + "validate buffer", source.length(), () -> {
+				SyntacticAnalyser.validate(tokens);
+				return tokens;
+			});
+			Benchmark.run(label + "parse source", source.length(),
+					() -> SyntacticAnalyser.parse(LexicalAnalyser.stream(source)));
+			Benchmark.run(label + "validate source", source.length(), () -> {
+				SyntacticAnalyser.validate(LexicalAnalyser.stream(source));
+				return source;
+			});
+		}
+	}
+
+}